@@ -0,0 +1,342 @@
+/**
+ * The Bitboards class holds the precomputed attack tables used by the bitboard move generator.
+ * Squares are numbered row * 8 + column, the same way Position numbers them, so bit 0 is a8 and
+ * bit 63 is h1.
+ *
+ * Sliding attacks are looked up in magic bitboard tables: the blockers on a slider's relevant
+ * squares are multiplied by a per-square magic number and the top bits of the product index a
+ * table holding the attack set for that blocker arrangement.
+ */
+public final class Bitboards {
+
+    /**
+     * Squares a knight attacks from each square.
+     */
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+
+    /**
+     * Squares a king attacks from each square.
+     */
+    public static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * Squares a pawn of the given side attacks from each square. Indexed [side][square].
+     */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    /**
+     * Directions on the board, from white's point of view. Rows count down from the eighth rank,
+     * so UP walks towards row 0.
+     */
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+    public static final int UP_LEFT = 4;
+    public static final int UP_RIGHT = 5;
+    public static final int DOWN_LEFT = 6;
+    public static final int DOWN_RIGHT = 7;
+
+    /**
+     * The directions rooks and bishops slide in.
+     */
+    private static final int[] STRAIGHT = {UP, DOWN, LEFT, RIGHT};
+    private static final int[] DIAGONAL = {UP_LEFT, UP_RIGHT, DOWN_LEFT, DOWN_RIGHT};
+
+    /**
+     * Every square reached by sliding from a square in one direction until the edge of the board.
+     * Indexed [direction][square].
+     */
+    public static final long[][] RAYS = new long[8][64];
+
+    /**
+     * Squares strictly between two squares on the same row, column or diagonal, and no squares for
+     * any other pair. Indexed [square][square].
+     */
+    public static final long[][] BETWEEN = new long[64][64];
+
+    /**
+     * The whole row, column or diagonal through two squares, edge to edge, and no squares for any
+     * other pair. Indexed [square][square].
+     */
+    public static final long[][] LINE = new long[64][64];
+
+    /**
+     * Row and column steps for each direction.
+     */
+    private static final int[] ROW_STEP = {-1, 1, 0, 0, -1, -1, 1, 1};
+    private static final int[] COL_STEP = {0, 0, -1, 1, -1, 1, -1, 1};
+
+    /**
+     * Bitboards of each row, row 0 being the eighth rank.
+     */
+    public static final long[] ROWS = new long[8];
+
+    /**
+     * Bitboards of each column, column 0 being the a-file.
+     */
+    public static final long[] FILES = new long[8];
+
+    /**
+     * Light squares of the board. a8 (bit 0) is light.
+     */
+    public static final long LIGHT_SQUARES = 0xAA55AA55AA55AA55L;
+
+    /**
+     * Magic multipliers for rooks and bishops on each square. They were found by a seeded random
+     * search for this square numbering and are checked for collisions when the tables are built.
+     */
+    private static final long[] ROOK_MAGICS = {
+            0x0080008018204000L, 0xA040100020004001L, 0x2080100008842001L, 0x0100100004200900L,
+            0x4500050010080002L, 0x4100088204000100L, 0xA100090028A40A00L, 0x0200004100240082L,
+            0x0008800040009020L, 0x0000802000400088L, 0x0011004020001100L, 0x0002000842021020L,
+            0x0805001102080004L, 0x0020800200040081L, 0x0001000200040100L, 0x0002000108540082L,
+            0x8040008000204080L, 0x007000C000402001L, 0x0090450011002000L, 0x5002020010082040L,
+            0x4040808008000400L, 0x4014808002000400L, 0x0441440082110830L, 0x0001020000804104L,
+            0x4100400080008021L, 0x4020400100208104L, 0x8482288200104200L, 0xE06B000900100020L,
+            0x0411001100080004L, 0x0426E20080240080L, 0x0000880400100102L, 0x0080040200008061L,
+            0x40124004A0800180L, 0x0040802001804000L, 0x0040811001802000L, 0x1400100080800800L,
+            0x0008020040400400L, 0x0A0200909600080CL, 0x1802008D42001408L, 0x400108A402000243L,
+            0x0880400180018020L, 0x0800400020008080L, 0x0090080401212000L, 0x0110008100080800L,
+            0x0248010004090010L, 0x8004020004008080L, 0xD080010002008080L, 0x0900041880420001L,
+            0x0140800821084900L, 0x0100400220048880L, 0x0200402001001100L, 0x2400082100100100L,
+            0x4008008008040080L, 0x8203000400080300L, 0x2008010208100400L, 0x00C001004C008600L,
+            0x8000201040800101L, 0x0100802102400015L, 0x0100081200208042L, 0x18420008C0502016L,
+            0x2001000408001023L, 0x0801000208340005L, 0x0000422081081004L, 0x2003022401510082L};
+    private static final long[] BISHOP_MAGICS = {
+            0x0840128E84028880L, 0x0004100081011081L, 0x0088081100201820L, 0x0008204044001040L,
+            0x002410A801349004L, 0x0011102210000082L, 0x0242022120085000L, 0x8000140208420800L,
+            0x0104922008410040L, 0x0006889084094142L, 0x0001900152002000L, 0x1001041042011401L,
+            0x0040045041040014L, 0x0861009010081100L, 0x9800620862080400L, 0x08502612020A4A00L,
+            0x88054D4004040C40L, 0x0802004410021A00L, 0x0298014088810108L, 0x00B8006220811000L,
+            0x1001000820080102L, 0x10A2208200900808L, 0x0020420205142100L, 0x00C2001144424804L,
+            0x002904180860080EL, 0x00082002C2044930L, 0x0040410008081100L, 0x820C080001010500L,
+            0x2000840254802000L, 0x0001020021008084L, 0x4009020008480440L, 0x4241002142108400L,
+            0x6068041000842020L, 0x0444120216201420L, 0x0400209000080020L, 0x31C0020080080080L,
+            0x6008102400014100L, 0x009A0C8100020440L, 0x0210042060290900L, 0x8208220031984100L,
+            0x000104200440A101L, 0x0641011042001000L, 0xE228C20041001020L, 0x821800C200800810L,
+            0x0120081011001014L, 0x00540408004B0200L, 0x21900400A4004088L, 0x00C98801090A0040L,
+            0x8020416820100040L, 0x0244908808420000L, 0x1640004200900800L, 0x0820800446080011L,
+            0x0200802022048110L, 0x0200132001090028L, 0x28A0882208004000L, 0x1002022214011008L,
+            0x08204C0088080200L, 0x1040204108011000L, 0x0801810A02011100L, 0x004088500E0A0208L,
+            0x2000880040082200L, 0x2000000490221200L, 0x408022982200A400L, 0x0108A01C08882300L};
+
+    /**
+     * Relevant blocker squares for each square: the slider's rays without the last square, since
+     * a piece on the edge never changes the attack set.
+     */
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+
+    /**
+     * Right shift applied to the magic product, 64 minus the number of relevant squares.
+     */
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+
+    /**
+     * Start of each square's slice of the shared attack table.
+     */
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+
+    /**
+     * Attack sets for every blocker arrangement of every square.
+     */
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_TABLE;
+
+    /**
+     * How long building the magic tables took, in nanoseconds.
+     */
+    public static final long MAGIC_INIT_NANOS;
+
+    static {
+        for (int row = 0; row < 8; row++) {
+            ROWS[row] = 0xFFL << (row * 8);
+            FILES[row] = 0x0101010101010101L << row;
+        }
+        int[][] knightSteps = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+        for (int square = 0; square < 64; square++) {
+            int row = square / 8;
+            int column = square % 8;
+            for (int[] step : knightSteps) {
+                KNIGHT_ATTACKS[square] |= bit(row + step[0], column + step[1]);
+            }
+            for (int d = 0; d < 8; d++) {
+                KING_ATTACKS[square] |= bit(row + ROW_STEP[d], column + COL_STEP[d]);
+                int r = row + ROW_STEP[d];
+                int c = column + COL_STEP[d];
+                while (r >= 0 && r <= 7 && c >= 0 && c <= 7) {
+                    RAYS[d][square] |= bit(r, c);
+                    r += ROW_STEP[d];
+                    c += COL_STEP[d];
+                }
+            }
+            // White pawns capture up the board, black pawns down it
+            PAWN_ATTACKS[Position.WHITE][square] = bit(row - 1, column - 1) | bit(row - 1, column + 1);
+            PAWN_ATTACKS[Position.BLACK][square] = bit(row + 1, column - 1) | bit(row + 1, column + 1);
+        }
+        for (int square = 0; square < 64; square++) {
+            for (int d = 0; d < 8; d++) {
+                long ray = RAYS[d][square];
+                while (ray != 0) {
+                    int other = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    BETWEEN[square][other] = RAYS[d][square] & ~RAYS[d][other] & ~(1L << other);
+                    // UP/DOWN and LEFT/RIGHT pair up as d ^ 1, the diagonals as 11 - d
+                    int opposite = d < 4 ? d ^ 1 : 11 - d;
+                    LINE[square][other] = RAYS[d][square] | RAYS[opposite][square] | (1L << square);
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        int rookSize = 0;
+        int bishopSize = 0;
+        for (int square = 0; square < 64; square++) {
+            ROOK_MASKS[square] = relevantSquares(square, STRAIGHT);
+            BISHOP_MASKS[square] = relevantSquares(square, DIAGONAL);
+            ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+            BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+            ROOK_OFFSETS[square] = rookSize;
+            BISHOP_OFFSETS[square] = bishopSize;
+            rookSize += 1 << Long.bitCount(ROOK_MASKS[square]);
+            bishopSize += 1 << Long.bitCount(BISHOP_MASKS[square]);
+        }
+        ROOK_TABLE = new long[rookSize];
+        BISHOP_TABLE = new long[bishopSize];
+        for (int square = 0; square < 64; square++) {
+            fillMagicTable(square, ROOK_MASKS[square], ROOK_MAGICS[square], ROOK_SHIFTS[square],
+                    ROOK_OFFSETS[square], ROOK_TABLE, STRAIGHT);
+            fillMagicTable(square, BISHOP_MASKS[square], BISHOP_MAGICS[square], BISHOP_SHIFTS[square],
+                    BISHOP_OFFSETS[square], BISHOP_TABLE, DIAGONAL);
+        }
+        MAGIC_INIT_NANOS = System.nanoTime() - start;
+    }
+
+    private Bitboards() {
+    }
+
+    /**
+     * Returns the bitboard of a single square, or 0 if the square is off the board.
+     */
+    private static long bit(int row, int column) {
+        if (row < 0 || row > 7 || column < 0 || column > 7) {
+            return 0L;
+        }
+        return 1L << (row * 8 + column);
+    }
+
+    /**
+     * Returns the squares along the given directions whose occupancy matters to a slider, i.e.
+     * every ray without its last square.
+     */
+    private static long relevantSquares(int square, int[] directions) {
+        long mask = 0;
+        for (int direction : directions) {
+            long ray = RAYS[direction][square];
+            if (ray != 0) {
+                long last = increasing(direction) ? Long.highestOneBit(ray) : Long.lowestOneBit(ray);
+                mask |= ray & ~last;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Stores the attack set of every blocker arrangement of one square at its magic index.
+     */
+    private static void fillMagicTable(int square, long mask, long magic, int shift, int offset,
+            long[] table, int[] directions) {
+        boolean[] filled = new boolean[1 << (64 - shift)];
+        long blockers = 0;
+        do {
+            long attacks = 0;
+            for (int direction : directions) {
+                attacks |= rayAttacks(direction, square, blockers);
+            }
+            int index = (int) ((blockers * magic) >>> shift);
+            if (filled[index] && table[offset + index] != attacks) {
+                throw new IllegalStateException("Magic collision on square " + square);
+            }
+            filled[index] = true;
+            table[offset + index] = attacks;
+            // Step to the next subset of the mask
+            blockers = (blockers - mask) & mask;
+        } while (blockers != 0);
+    }
+
+    /**
+     * Returns whether a direction walks towards higher square numbers. DOWN, RIGHT, DOWN_LEFT and
+     * DOWN_RIGHT do.
+     */
+    private static boolean increasing(int direction) {
+        return ROW_STEP[direction] > 0 || (ROW_STEP[direction] == 0 && COL_STEP[direction] > 0);
+    }
+
+    /**
+     * Returns the number of bytes held by the magic attack tables and their per-square lookup
+     * arrays.
+     */
+    public static long magicTableBytes() {
+        return 8L * (ROOK_TABLE.length + BISHOP_TABLE.length)
+                + 8L * (ROOK_MAGICS.length + BISHOP_MAGICS.length + ROOK_MASKS.length + BISHOP_MASKS.length)
+                + 4L * (ROOK_SHIFTS.length + BISHOP_SHIFTS.length + ROOK_OFFSETS.length + BISHOP_OFFSETS.length);
+    }
+
+    /**
+     * Returns the squares a slider on the given square attacks in one direction. The first
+     * occupied square along the ray is included, everything behind it is not. Only used to build
+     * the magic tables and to walk rays.
+     */
+    public static long rayAttacks(int direction, int square, long occupied) {
+        long ray = RAYS[direction][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            int blocker = increasing(direction)
+                    ? Long.numberOfTrailingZeros(blockers)
+                    : 63 - Long.numberOfLeadingZeros(blockers);
+            ray ^= RAYS[direction][blocker];
+        }
+        return ray;
+    }
+
+    /**
+     * Returns the squares a rook on the given square attacks.
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[square]
+                + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    /**
+     * Returns the squares a bishop on the given square attacks.
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[square]
+                + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    /**
+     * Returns the squares a queen on the given square attacks.
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Returns the squares a piece, given by its bitboard index (side * 6 + type), attacks from a
+     * square.
+     */
+    public static long attacks(int piece, int square, long occupied) {
+        return switch (piece % 6) {
+            case Position.PAWN -> PAWN_ATTACKS[piece / 6][square];
+            case Position.KNIGHT -> KNIGHT_ATTACKS[square];
+            case Position.BISHOP -> bishopAttacks(square, occupied);
+            case Position.ROOK -> rookAttacks(square, occupied);
+            case Position.QUEEN -> queenAttacks(square, occupied);
+            default -> KING_ATTACKS[square];
+        };
+    }
+}
@@ -1,6 +1,6 @@
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 import javax.swing.border.*;
 
@@ -53,7 +53,8 @@ public class ChessBoardGUI {
         BLACK,
         BLACK_SELECT,
         CHECKMATE,
-        STALEMATE
+        STALEMATE,
+        DRAW
     }
 
     /**
@@ -67,6 +68,11 @@ public class ChessBoardGUI {
      */
     private Board board;
 
+    /**
+     * Represents the Position displayed by the current GUI. The chessboard squares only mirror it.
+     */
+    private Position position;
+
     /**
      * Represents the position of the last click on the chessBoard. Index 0 is the row and index 1
      * is the column.
@@ -74,9 +80,31 @@ public class ChessBoardGUI {
     private int[] lastclick = new int[2];
 
     /**
-     * Reprsents the current set of legalMoves for the selected piece.
+     * Represents the legal moves of the selected piece, the first legalMoveCount of them.
      */
-    private HashSet<String> currentLegalMoves = new HashSet<>();
+    private final int[] currentLegalMoves = new int[MoveGenerator.MAX_MOVES];
+    private int legalMoveCount;
+
+    /**
+     * The engine that plays moves for the computer opponent.
+     */
+    private final Search engine = new Search();
+
+    /**
+     * How long the engine thinks about one move, in milliseconds.
+     */
+    private static final long ENGINE_MOVE_TIME = 1000;
+
+    /**
+     * When selected, the engine answers every move made on the board.
+     */
+    private final JCheckBox engineReplies = new JCheckBox("Engine Replies");
+
+    /**
+     * The engine search running in the background, or null when the engine is not thinking.
+     * Clicks on the board are ignored while it runs.
+     */
+    private SwingWorker<Integer, Void> engineTask;
 
 
     /**
@@ -108,6 +136,15 @@ public class ChessBoardGUI {
         JButton resign = new JButton("Resign");
         tools.add(resign); // TODO - add functionality
         resign.addActionListener(e -> currentGamestate = gamestate.CHECKMATE);
+        JButton claimDraw = new JButton("Claim Draw");
+        tools.add(claimDraw);
+        claimDraw.addActionListener(e -> claimDraw());
+        tools.addSeparator();
+
+        JButton engineMove = new JButton("Engine Move");
+        tools.add(engineMove);
+        engineMove.addActionListener(e -> engineMove());
+        tools.add(engineReplies);
         tools.addSeparator();
         tools.add(message);
 
@@ -121,7 +158,7 @@ public class ChessBoardGUI {
         Insets buttonMargin = new Insets(0,0,0,0);
         for (int ii = 0; ii < chessBoardSquares.length; ii++) {
             for (int jj = 0; jj < chessBoardSquares[ii].length; jj++) {
-                Piece b = new Piece("Empty",false);
+                Piece b = new Piece();
                 b.setMargin(buttonMargin);
                 b.setBorder(BorderFactory.createLineBorder(Color.BLACK, 1));
 
@@ -205,44 +242,23 @@ public class ChessBoardGUI {
             currentGamestate = gamestate.INACTIVE;
             uncolor();
         }
+        if (engineTask != null) {
+            // Its move is for the old position, done() drops it
+            engine.stop();
+        }
         // Initialize the board with the given FEN
-        String[] fields = userInput.split(" ");
-        board = new Board(fields);
-        String[] ranks = fields[0].split("/");
-        // First Field: pieces and their positions "3R"
+        position = new Position(userInput);
+        board = new Board();
+        refreshSquares();
+    }
+
+    /**
+     * Mirrors the current Position onto the chessboard squares.
+     */
+    private void refreshSquares() {
         for (int row = 0; row < 8; row++) {
-            int column = 0;
-            for (int j = 0; j < ranks[row].length(); j++ ) { //j = current index along rank entry
-                try {
-                    int empties = Integer.parseInt(ranks[row].substring(j,j+1));
-                    for (int k = 0; k < empties; k++) {
-                        Piece piece = new Piece("Empty", false);
-                        chessBoardSquares[row][column].reinitialize(piece);
-                        column++;
-                    }
-                } catch (NumberFormatException e) {
-                    // Enforce hasMoved for pawns
-                    Piece piece;
-                    String pieceType = ranks[row].substring(j,j+1);
-                    if (pieceType.equals("p") && row == 1) {
-                        piece = new Piece(pieceType, false);
-                    } else if (pieceType.equals("P") && row == 6) {
-                        piece = new Piece(pieceType, false);
-                    } else if (pieceType.equals("P") || pieceType.equals("p")) {
-                        piece = new Piece(pieceType, true);
-                    } else {
-                        piece = new Piece(pieceType, false);
-                    }
-                    chessBoardSquares[row][column].reinitialize(piece);
-                    column++;
-                }
-            } // I don't know if this is needed for valid FENs, but it is convenient
-            if (column != 7) {
-                while (column <= 7) {
-                    Piece piece = new Piece("Empty", false);
-                    chessBoardSquares[row][column].reinitialize(piece);
-                    column++;
-                }
+            for (int column = 0; column < 8; column++) {
+                chessBoardSquares[row][column].display(position.pieceAt(row * 8 + column));
             }
         }
     }
@@ -254,10 +270,7 @@ public class ChessBoardGUI {
         if (board == null) {
             return;
         }
-        // Check if any checks or pins exist
-        board.updateXray(chessBoardSquares);
-
-        if (board.getTurn().equals("w")) {
+        if (position.getSideToMove() == Position.WHITE) {
             currentGamestate = gamestate.WHITE;
         } else {
             currentGamestate = gamestate.BLACK;
@@ -269,21 +282,29 @@ public class ChessBoardGUI {
      * Handles the movement of the pieces on the GUI. Ensures that moves are legal.
      */
     public void buttonPress(int row, int column) {
+        if (engineTask != null) {
+            return;
+        }
+        // The chessboard squares are laid out by row and column, the Board works on square indexes
+        int square = row * 8 + column;
         switch (currentGamestate) {
             case WHITE,BLACK:
-                if (currentGamestate == gamestate.WHITE && chessBoardSquares[row][column].getColor() == -1) {
+                int piece = position.pieceAt(square);
+                if (piece == Position.EMPTY) {
+                    break;
+                } else if (currentGamestate == gamestate.WHITE && piece / 6 == Position.WHITE) {
                     currentGamestate = gamestate.WHITE_SELECT;
-                } else if (currentGamestate == gamestate.BLACK && chessBoardSquares[row][column].getColor() == 1) {
+                } else if (currentGamestate == gamestate.BLACK && piece / 6 == Position.BLACK) {
                     currentGamestate = gamestate.BLACK_SELECT;
                 } else {
                     break;
                 }
-                currentLegalMoves = board.legalMoves(row, column, chessBoardSquares);
+                legalMoveCount = board.legalMoves(square, position, currentLegalMoves);
                 // Color current piece and legalMoves
                 chessBoardSquares[row][column].setBackground(Color.green);
-                for (String position : currentLegalMoves) {
-                    int[] coords = board.coordOfPosition(position);
-                    chessBoardSquares[coords[0]][coords[1]].setBackground(Color.green);
+                for (int i = 0; i < legalMoveCount; i++) {
+                    int target = clickSquare(currentLegalMoves[i]);
+                    chessBoardSquares[target / 8][target % 8].setBackground(Color.green);
                 }
                 break;
             case WHITE_SELECT, BLACK_SELECT:
@@ -303,24 +324,14 @@ public class ChessBoardGUI {
                 // otherwise set gamestate back to WHITE or BLACK.
                 // 3. Check for promotion, then check for checks on the opposing King
                 // 4. If there is a check, should automatically check for checkmate as well.
-                if (currentLegalMoves.contains(board.positionOfCoord(row, column))) {
+                if (selectedMove(square) != Search.NO_MOVE) {
                     // Uncolor selection first so background can be used in makeMove()
                     uncolor();
                     // MAKE MOVE (make a helper function)
-                    makeMove(row, column);
-                    // Uncolor Selection and Check for Checks and update XRAY status
-                    boardUpdate();
-                    if (currentGamestate == gamestate.CHECKMATE) {
-                        // END GAME
-                    } else if (currentGamestate == gamestate.STALEMATE) {
-                        // END GAME
-                    }
-                    // Switch turn
-                    else if (currentGamestate == gamestate.WHITE_SELECT) {
-                        currentGamestate = gamestate.BLACK;
-                    } else {
-                        currentGamestate = gamestate.WHITE;
-
+                    makeMove(square);
+                    endTurn();
+                    if (engineReplies.isSelected()) {
+                        engineMove();
                     }
                 } else { // Illegal move selected, deselect piece
                     if (currentGamestate == gamestate.WHITE_SELECT) {
@@ -340,151 +351,150 @@ public class ChessBoardGUI {
     }
 
     /**
-     * Handles the execution of making a move on the board. Makes sure to update all necessary
-     * fields. related to the backing data and the display on the GUI.
+     * Runs the checks that follow a move and passes the turn to the other side, unless the game
+     * has ended.
      */
-    private void makeMove(int destRow, int destCol) {
-        // Empty current passant moves
-        board.emptyPassant();
-        Piece empty = new Piece("Empty",false);
-        Piece origin = chessBoardSquares[lastclick[0]][lastclick[1]];
-        Piece target = chessBoardSquares[destRow][destCol];
-
-        if(target.getColor() != 0) {
-            // TODO: Do something regarding captures?
-            //  E.g. listing the captured pieces on the gui somewhere?
+    private void endTurn() {
+        // Uncolor Selection and Check for Checks and update XRAY status
+        boardUpdate();
+        if (currentGamestate == gamestate.CHECKMATE) {
+            // END GAME
+        } else if (currentGamestate == gamestate.STALEMATE) {
+            // END GAME
+        } else if (currentGamestate == gamestate.DRAW) {
+            // END GAME
         }
-        if(origin.getType().equalsIgnoreCase("P")) {
-            // Special things need to be done for pawns:
-            // Promotion:
-            if (currentGamestate == gamestate.WHITE_SELECT && destRow == 0) {
-                ImageIcon[] options = {new ImageIcon("icons/whitequeen.png"),
-                        new ImageIcon("icons/whiterook.png"),
-                        new ImageIcon("icons/whitebishop.png"),
-                        new ImageIcon("icons/whiteknight.png")};
-                int selectedOption = JOptionPane.showOptionDialog(
-                        gui,
-                        "Promotion",
-                        "Choose a piece to promote to:",
-                        JOptionPane.DEFAULT_OPTION,
-                        JOptionPane.QUESTION_MESSAGE,
-                        null,
-                        options,
-                        options[0]
-                );
-                switch (selectedOption) {
-                    case 0 -> origin.reinitialize(new Piece("Q", true));
-                    case 1 -> origin.reinitialize(new Piece("R", true));
-                    case 2 -> origin.reinitialize(new Piece("B", true));
-                    case 3 -> origin.reinitialize(new Piece("N", true));
-                }
-            } else if (currentGamestate == gamestate.BLACK_SELECT && destRow == 7) {
-                ImageIcon[] options = {new ImageIcon("icons/blackqueen.png"),
-                        new ImageIcon("icons/blackrook.png"),
-                        new ImageIcon("icons/blackbishop.png"),
-                        new ImageIcon("icons/blackknight.png")};
-                int selectedOption = JOptionPane.showOptionDialog(
-                        gui,
-                        "Promotion",
-                        "Choose a piece to promote to:",
-                        JOptionPane.DEFAULT_OPTION,
-                        JOptionPane.QUESTION_MESSAGE,
-                        null,
-                        options,
-                        options[0]
-                );
-                switch (selectedOption) {
-                    case 0 -> origin.reinitialize(new Piece("q", true));
-                    case 1 -> origin.reinitialize(new Piece("r", true));
-                    case 2 -> origin.reinitialize(new Piece("b", true));
-                    case 3 -> origin.reinitialize(new Piece("n", true));
-                }
+        // Switch turn
+        else if (currentGamestate == gamestate.WHITE_SELECT) {
+            currentGamestate = gamestate.BLACK;
+        } else {
+            currentGamestate = gamestate.WHITE;
 
-            }
-            // En Passant:
-            // 1. Update things when pawns move 2 spaces.
-            // 2. Capture the piece that should be captured
-            if (Math.abs(destRow - lastclick[0]) > 1) {
-                if(currentGamestate == gamestate.BLACK_SELECT) {
-                    board.addPassant(board.positionOfCoord(destRow-1, destCol));
-                } else {
-                    board.addPassant(board.positionOfCoord(destRow+1, destCol));
-                }
-            }
-            if (destCol != lastclick[1] && target.getType().equals("Empty")) {
-                Piece passantTarget;
-                if(currentGamestate == gamestate.BLACK_SELECT) {
-                    passantTarget = chessBoardSquares[destRow-1][destCol];
-                } else {
-                    passantTarget = chessBoardSquares[destRow+1][destCol];
-                }
-                passantTarget.reinitialize(empty);
-            }
-            target.reinitialize(origin); // Is this all I need to do?
-            target.setMoved(true);
-            // This maintains the background because I am just setting the background
-            // to what it already is
-            origin.reinitialize(empty);
+        }
+    }
+
+    /**
+     * Ends the game in a draw if the side to move may claim one under the fifty move rule. After
+     * seventy-five moves the game is drawn without a claim.
+     */
+    public void claimDraw() {
+        if ((currentGamestate == gamestate.WHITE || currentGamestate == gamestate.BLACK)
+                && board.canClaimDraw(position)) {
+            currentGamestate = gamestate.DRAW;
+        }
+    }
+
+    /**
+     * Lets the engine play a move for the side to move, if a game is in progress, no piece is
+     * selected and the engine is not already thinking. The search runs on a copy of the position
+     * in a background thread, so the window keeps repainting, and the move is played on the event
+     * thread once it is found.
+     */
+    public void engineMove() {
+        if (engineTask != null
+                || (currentGamestate != gamestate.WHITE && currentGamestate != gamestate.BLACK)) {
             return;
         }
-        if(origin.getType().equalsIgnoreCase("K")) {
-            // Special things to consider for kings:
-            // Castling
-            if (destCol - lastclick[1] > 1) {
-                // Kingside castle
-                Piece kingTarget = chessBoardSquares[destRow][destCol-1];
-                Piece rookTarget = chessBoardSquares[lastclick[0]][lastclick[1]+1];
-                rookTarget.reinitialize(target);
-                rookTarget.setMoved(true);
-                kingTarget.reinitialize(origin);
-                kingTarget.setMoved(true);
-                target.reinitialize(empty);
-                origin.reinitialize(empty);
-                if(rookTarget.getColor() == -1) {
-                    board.removeCastle("K");
-                } else {
-                    board.removeCastle("k");
+        Position searched = position;
+        gamestate turn = currentGamestate;
+        Position copy = new Position(position);
+        // Cleared here rather than in the worker, so a reset before the search starts still stops it
+        engine.clearStop();
+        engineTask = new SwingWorker<>() {
+            @Override
+            protected Integer doInBackground() {
+                return engine.search(copy, Search.MAX_PLY, Long.MAX_VALUE,
+                        TimeManager.forMoveTime(ENGINE_MOVE_TIME));
+            }
+
+            @Override
+            protected void done() {
+                engineTask = null;
+                int move;
+                try {
+                    move = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new IllegalStateException("Engine search failed", e);
                 }
-                return;
-            } else if (destCol - lastclick[1] < -1) {
-                // Queenside castle
-                Piece kingTarget = chessBoardSquares[destRow][destCol+2];
-                Piece rookTarget = chessBoardSquares[lastclick[0]][lastclick[1]-1];
-                rookTarget.reinitialize(target);
-                rookTarget.setMoved(true);
-                kingTarget.reinitialize(origin);
-                kingTarget.setMoved(true);
-                target.reinitialize(empty);
-                origin.reinitialize(empty);
-                // You can't castle twice
-                if(rookTarget.getColor() == -1) {
-                    board.removeCastle("Q");
-                    board.removeCastle("K");
-                } else {
-                    board.removeCastle("q");
-                    board.removeCastle("k");
+                // Drop the move if a new game was set up or the game ended while the engine thought
+                if (move == Search.NO_MOVE || position != searched || currentGamestate != turn) {
+                    return;
                 }
-                return;
+                currentGamestate = turn == gamestate.WHITE ? gamestate.WHITE_SELECT : gamestate.BLACK_SELECT;
+                uncolor();
+                position.makeMove(move);
+                refreshSquares();
+                endTurn();
             }
-            // Once the king moves he cannot castle
-            if(origin.getColor() == -1) {
-                board.removeCastle("Q");
-                board.removeCastle("K");
-            } else {
-                board.removeCastle("q");
-                board.removeCastle("k");
+        };
+        engineTask.execute();
+    }
+
+    /**
+     * Returns the square a legal move is selected by: its destination, or the rook's square for
+     * castling.
+     */
+    private static int clickSquare(int move) {
+        if (Move.flag(move) == Move.CASTLE) {
+            return Move.to(move) > Move.from(move) ? Move.from(move) + 3 : Move.from(move) - 4;
+        }
+        return Move.to(move);
+    }
+
+    /**
+     * Returns the first legal move of the selected piece selected by clicking the given square, or
+     * Search.NO_MOVE if there is none. Promotions come in the order queen, rook, bishop, knight.
+     */
+    private int selectedMove(int square) {
+        for (int i = 0; i < legalMoveCount; i++) {
+            if (clickSquare(currentLegalMoves[i]) == square) {
+                return currentLegalMoves[i];
             }
-            target.reinitialize(origin);
-            target.setMoved(true);
-            origin.reinitialize(empty);
-            return;
         }
-        // All other pieces
-        target.reinitialize(origin); // Is this all I need to do?
-        target.setMoved(true);
-        origin.reinitialize(empty);
+        return Search.NO_MOVE;
+    }
+
+    /**
+     * Handles the execution of making a move on the board. Plays the legal move selected by
+     * clicking the given square on the Position, asking for a promotion piece if needed, then
+     * updates the display.
+     */
+    private void makeMove(int square) {
+        int move = selectedMove(square);
 
+        if (Move.isCapture(move)) {
+            // TODO: Do something regarding captures?
+            //  E.g. listing the captured pieces on the gui somewhere?
+        }
+        if (Move.flag(move) == Move.PROMOTION) {
+            String color = currentGamestate == gamestate.WHITE_SELECT ? "white" : "black";
+            ImageIcon[] options = {new ImageIcon("icons/" + color + "queen.png"),
+                    new ImageIcon("icons/" + color + "rook.png"),
+                    new ImageIcon("icons/" + color + "bishop.png"),
+                    new ImageIcon("icons/" + color + "knight.png")};
+            int selectedOption = JOptionPane.showOptionDialog(
+                    gui,
+                    "Promotion",
+                    "Choose a piece to promote to:",
+                    JOptionPane.DEFAULT_OPTION,
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    options,
+                    options[0]
+            );
+            // Closing the dialog promotes to a queen
+            int[] promotions = {Position.QUEEN, Position.ROOK, Position.BISHOP, Position.KNIGHT};
+            int type = promotions[Math.max(selectedOption, 0)];
+            for (int i = 0; i < legalMoveCount; i++) {
+                if (Move.to(currentLegalMoves[i]) == Move.to(move) && Move.promotion(currentLegalMoves[i]) == type) {
+                    move = currentLegalMoves[i];
+                }
+            }
+        }
+        position.makeMove(move);
+        refreshSquares();
     }
+
     /**
      * Sets all the squares on the chessboard Piece's backgrounds to what they were originally.
      */
@@ -498,40 +508,26 @@ public class ChessBoardGUI {
 
     /**
      * Does the various checks that need to be made after each move is made, such as:
-     * -Update each piece's Xray status
      * -Detect check and checkmate
+     * -Detect stalemate, threefold repetition, the seventy-five move rule and insufficient material
      */
     public void boardUpdate() {
-        // Refresh all pieces' pin status
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                chessBoardSquares[i][j].resetPin();
-            }
-        }
-        // Detect check, checkmate, and draws
-        if (currentGamestate == gamestate.WHITE_SELECT) {
-            if (board.detectChecks(1, chessBoardSquares) > 0) {
-                if (board.detectCheckmate(1, chessBoardSquares)) {
-                    currentGamestate = gamestate.CHECKMATE;
-                }
-            } else {
-                // Detect stalemate
-                if (board.detectStalemate(1, chessBoardSquares)) {
-                    currentGamestate = gamestate.STALEMATE;
-                }
+        // Detect check, checkmate, and draws for the side whose turn comes next
+        int side = currentGamestate == gamestate.WHITE_SELECT ? Position.BLACK : Position.WHITE;
+        if (board.detectChecks(side, position) > 0) {
+            if (board.detectCheckmate(side, position)) {
+                currentGamestate = gamestate.CHECKMATE;
             }
         } else {
-            if (board.detectChecks(-1, chessBoardSquares) > 0) {
-                if (board.detectCheckmate(-1, chessBoardSquares)) {
-                    currentGamestate = gamestate.CHECKMATE;
-                }
-            } else {
-                // Detect stalemate
-                if (board.detectStalemate(-1, chessBoardSquares)) {
-                    currentGamestate = gamestate.STALEMATE;
-                }
+            // Detect stalemate
+            if (board.detectStalemate(side, position)) {
+                currentGamestate = gamestate.STALEMATE;
             }
         }
-
+        // Detect threefold repetition, the seventy-five move rule and insufficient material
+        if (currentGamestate != gamestate.CHECKMATE && currentGamestate != gamestate.STALEMATE
+                && board.detectDraw(position)) {
+            currentGamestate = gamestate.DRAW;
+        }
     }
 }
@@ -0,0 +1,132 @@
+/**
+ * Headless entry point for the search engine. Searches a FEN and prints a line per finished depth
+ * followed by the best move.
+ *
+ * Usage:
+ * java EngineMain [options] "<fen>"
+ *     -depth N      maximum depth, 6 by default, or no limit when the side to move has a time limit
+ *     -nodes N      maximum nodes of the main thread, no limit by default
+ *     -movetime MS  think for exactly this long
+ *     -wtime MS, -btime MS, -winc MS, -binc MS, -movestogo N
+ *                   clock of each side, increments and moves to the next time control; the
+ *                   side to move's clock sets the time limits
+ *     -overhead MS  time kept back for sending the move, TimeManager.DEFAULT_OVERHEAD_MS by default
+ *     -hash MB      transposition table size, Search.DEFAULT_TABLE_MB by default
+ *     -table T      "heap" (the default), "offheap", or the path of a hugetlbfs mount to map an off
+ *                   heap table from
+ *     -threads N    number of search threads, 1 by default
+ *     -speedup      first search on one thread, then on all threads, and compare the two
+ *     -nonull, -nolmr, -nofutility
+ *                   switch off null move pruning, late move reductions or futility pruning
+ */
+public class EngineMain {
+
+    private static int depth = -1;
+    private static long nodes = Long.MAX_VALUE;
+    private static long moveTime = -1;
+    private static long[] clock = {-1, -1};
+    private static long[] increment = {0, 0};
+    private static int movesToGo = 0;
+    private static long overhead = TimeManager.DEFAULT_OVERHEAD_MS;
+    private static boolean nullMove = true;
+    private static boolean reductions = true;
+    private static boolean futility = true;
+
+    public static void main(String[] args) {
+        int hash = Search.DEFAULT_TABLE_MB;
+        String kind = "heap";
+        int threads = 1;
+        boolean speedup = false;
+        String fen = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-depth" -> depth = Integer.parseInt(args[++i]);
+                case "-nodes" -> nodes = Long.parseLong(args[++i]);
+                case "-movetime" -> moveTime = Long.parseLong(args[++i]);
+                case "-wtime" -> clock[Position.WHITE] = Long.parseLong(args[++i]);
+                case "-btime" -> clock[Position.BLACK] = Long.parseLong(args[++i]);
+                case "-winc" -> increment[Position.WHITE] = Long.parseLong(args[++i]);
+                case "-binc" -> increment[Position.BLACK] = Long.parseLong(args[++i]);
+                case "-movestogo" -> movesToGo = Integer.parseInt(args[++i]);
+                case "-overhead" -> overhead = Long.parseLong(args[++i]);
+                case "-hash" -> hash = Integer.parseInt(args[++i]);
+                case "-table" -> kind = args[++i];
+                case "-threads" -> threads = Integer.parseInt(args[++i]);
+                case "-speedup" -> speedup = true;
+                case "-nonull" -> nullMove = false;
+                case "-nolmr" -> reductions = false;
+                case "-nofutility" -> futility = false;
+                default -> fen = args[i];
+            }
+        }
+        if (fen == null) {
+            System.out.println("Usage: java EngineMain [-depth N] [-nodes N] [-movetime MS] "
+                    + "[-wtime MS] [-btime MS] [-winc MS] [-binc MS] [-movestogo N] [-overhead MS] "
+                    + "[-hash MB] [-table heap|offheap|<hugetlbfs dir>] [-threads N] [-speedup] "
+                    + "[-nonull] [-nolmr] [-nofutility] \"<fen>\"");
+            System.exit(2);
+        }
+        if (depth < 0) {
+            depth = createTimer(new Position(fen)) != null ? Search.MAX_PLY : 6;
+        }
+
+        TranspositionTable table = TranspositionTable.create(hash, !kind.equals("heap"),
+                kind.equals("heap") || kind.equals("offheap") ? null : kind);
+        long singleNanos = 0;
+        if (speedup && threads > 1) {
+            // Warm up the JIT first, or the single thread run pays for compiling the engine
+            new ParallelSearch(table, threads).search(new Position(fen), depth - 1, nodes, null);
+            table.clear();
+            System.out.println("1 thread:");
+            singleNanos = run(new ParallelSearch(table, 1), new Position(fen), table);
+            table.clear();
+            System.out.println();
+            System.out.println(threads + " threads:");
+        }
+        long nanos = run(new ParallelSearch(table, threads), new Position(fen), table);
+        if (singleNanos > 0) {
+            System.out.printf("Speedup: %.2fx time to depth %d%n", (double) singleNanos / nanos, depth);
+        }
+    }
+
+    /**
+     * Returns the time limits given on the command line for the side to move, or null if there
+     * are none.
+     */
+    private static TimeManager createTimer(Position position) {
+        int side = position.getSideToMove();
+        if (moveTime >= 0) {
+            return TimeManager.forMoveTime(moveTime);
+        } else if (clock[side] >= 0) {
+            return TimeManager.forClock(clock[side], increment[side], movesToGo, overhead);
+        }
+        return null;
+    }
+
+    /**
+     * Runs one search and prints its result. Returns how long it took in nanoseconds.
+     */
+    private static long run(ParallelSearch search, Position position, TranspositionTable table) {
+        search.setOutput(System.out);
+        search.setNullMovePruning(nullMove);
+        search.setLateMoveReductions(reductions);
+        search.setFutilityPruning(futility);
+        long start = System.nanoTime();
+        int move = search.search(position, depth, nodes, createTimer(position));
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("bestmove " + (move == Search.NO_MOVE ? "(none)" : Move.toString(move)));
+        System.out.printf("Nodes: %d, time: %.3f s, nodes/second: %.0f%n", search.getNodes(), elapsed / 1e9,
+                search.getNodes() / Math.max(elapsed / 1e9, 1e-9));
+        if (search.getThreads() > 1) {
+            long[] threadNodes = search.getThreadNodes();
+            for (int i = 0; i < threadNodes.length; i++) {
+                System.out.println("  thread " + i + ": " + threadNodes[i] + " nodes");
+            }
+        }
+        System.out.printf("Hash: %d entries, hit rate %.1f%%, occupancy %.1f%%%n", table.capacity(),
+                100 * table.hitRate(), 100 * table.occupancy());
+        System.out.printf("Pawn hash: hit rate %.1f%%%n", 100 * search.pawnHitRate());
+        return elapsed;
+    }
+}
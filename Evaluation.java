@@ -0,0 +1,355 @@
+/**
+ * The Evaluation class scores a Position statically, in centipawns from the point of view of the
+ * side to move.
+ *
+ * The score is material plus piece-square bonuses, once for the middlegame and once for the
+ * endgame, blended by how much material is left (a tapered evaluation). Position keeps both sums
+ * and the game phase up to date as pieces are put and removed, so evaluating a position only
+ * reads three ints. The values are those of the PeSTO evaluation by Ronald Friederich.
+ *
+ * Pawn structure adds penalties for doubled, isolated and backward pawns and bonuses for passed
+ * pawns. It only depends on where the pawns are, so the search caches it in a PawnTable; only the
+ * bonus for passed pawns whose way forward is clear, which depends on the other pieces, is worked
+ * out for every position.
+ */
+public final class Evaluation {
+
+    /**
+     * Centipawn value of each piece type, indexed by Position piece type. Used where a single
+     * value per piece is needed, such as the static exchange evaluation.
+     */
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    /**
+     * Game phase each piece type adds while it is on the board. The phase is MAX_PHASE with all
+     * pieces on the board and 0 with only pawns and kings left.
+     */
+    public static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+    public static final int MAX_PHASE = 24;
+
+    /**
+     * Value of a piece on a square, material included, indexed [piece][square] with piece being
+     * the Position bitboard index. White pieces count positive, black pieces negative.
+     */
+    public static final int[][] MIDDLEGAME = new int[12][64];
+    public static final int[][] ENDGAME = new int[12][64];
+
+    /**
+     * Pawn structure terms, middlegame and endgame. Passed pawn bonuses are indexed by how many
+     * rows the pawn has advanced from its side's first row.
+     */
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -25;
+    private static final int ISOLATED_MIDDLEGAME = -15;
+    private static final int ISOLATED_ENDGAME = -10;
+    private static final int BACKWARD_MIDDLEGAME = -10;
+    private static final int BACKWARD_ENDGAME = -8;
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 45, 70, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 100, 150, 0};
+    private static final int[] FREE_PASSED_ENDGAME = {0, 0, 5, 10, 20, 35, 60, 0};
+
+    /**
+     * Squares in front of a pawn on its own and the neighbouring columns, which must hold no enemy
+     * pawn for it to be passed. Indexed [side][square].
+     */
+    private static final long[][] PASSED_MASKS = new long[2][64];
+
+    /**
+     * Squares on the neighbouring columns level with or behind a pawn, where pawns that could
+     * still support it stand. Indexed [side][square].
+     */
+    private static final long[][] SUPPORT_MASKS = new long[2][64];
+
+    /**
+     * The columns next to each column.
+     */
+    private static final long[] ADJACENT_FILES = new long[8];
+
+    private static final int[] MIDDLEGAME_VALUES = {82, 337, 365, 477, 1025, 0};
+    private static final int[] ENDGAME_VALUES = {94, 281, 297, 512, 936, 0};
+
+    /**
+     * Piece-square bonuses of each piece type for white, laid out like the board from white's
+     * side: the first row is the eighth rank, which matches the square numbering of Position.
+     * Black uses the same tables mirrored top to bottom.
+     */
+    private static final int[][] MIDDLEGAME_SQUARES = {
+            { // Pawn
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    98, 134, 61, 95, 68, 126, 34, -11,
+                    -6, 7, 26, 31, 65, 56, 25, -20,
+                    -14, 13, 6, 21, 23, 12, 17, -23,
+                    -27, -2, -5, 12, 17, 6, 10, -25,
+                    -26, -4, -4, -10, 3, 3, 33, -12,
+                    -35, -1, -20, -23, -15, 24, 38, -22,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+            { // Knight
+                    -167, -89, -34, -49, 61, -97, -15, -107,
+                    -73, -41, 72, 36, 23, 62, 7, -17,
+                    -47, 60, 37, 65, 84, 129, 73, 44,
+                    -9, 17, 19, 53, 37, 69, 18, 22,
+                    -13, 4, 16, 13, 28, 19, 21, -8,
+                    -23, -9, 12, 10, 19, 17, 25, -16,
+                    -29, -53, -12, -3, -1, 18, -14, -19,
+                    -105, -21, -58, -33, -17, -28, -19, -23},
+            { // Bishop
+                    -29, 4, -82, -37, -25, -42, 7, -8,
+                    -26, 16, -18, -13, 30, 59, 18, -47,
+                    -16, 37, 43, 40, 35, 50, 37, -2,
+                    -4, 5, 19, 50, 37, 37, 7, -2,
+                    -6, 13, 13, 26, 34, 12, 10, 4,
+                    0, 15, 15, 15, 14, 27, 18, 10,
+                    4, 15, 16, 0, 7, 21, 33, 1,
+                    -33, -3, -14, -21, -13, -12, -39, -21},
+            { // Rook
+                    32, 42, 32, 51, 63, 9, 31, 43,
+                    27, 32, 58, 62, 80, 67, 26, 44,
+                    -5, 19, 26, 36, 17, 45, 61, 16,
+                    -24, -11, 7, 26, 24, 35, -8, -20,
+                    -36, -26, -12, -1, 9, -7, 6, -23,
+                    -45, -25, -16, -17, 3, 0, -5, -33,
+                    -44, -16, -20, -9, -1, 11, -6, -71,
+                    -19, -13, 1, 17, 16, 7, -37, -26},
+            { // Queen
+                    -28, 0, 29, 12, 59, 44, 43, 45,
+                    -24, -39, -5, 1, -16, 57, 28, 54,
+                    -13, -17, 7, 8, 29, 56, 47, 57,
+                    -27, -27, -16, -16, -1, 17, -2, 1,
+                    -9, -26, -9, -10, -2, -4, 3, -3,
+                    -14, 2, -11, -2, -5, 2, 14, 5,
+                    -35, -8, 11, 2, 8, 15, -3, 1,
+                    -1, -18, -9, 10, -15, -25, -31, -50},
+            { // King
+                    -65, 23, 16, -15, -56, -34, 2, 13,
+                    29, -1, -20, -7, -8, -4, -38, -29,
+                    -9, 24, 2, -16, -20, 6, 22, -22,
+                    -17, -20, -12, -27, -30, -25, -14, -36,
+                    -49, -1, -27, -39, -46, -44, -33, -51,
+                    -14, -14, -22, -46, -44, -30, -15, -27,
+                    1, 7, -8, -64, -43, -16, 9, 8,
+                    -15, 36, 12, -54, 8, -28, 24, 14}};
+    private static final int[][] ENDGAME_SQUARES = {
+            { // Pawn
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    178, 173, 158, 134, 147, 132, 165, 187,
+                    94, 100, 85, 67, 56, 53, 82, 84,
+                    32, 24, 13, 5, -2, 4, 17, 17,
+                    13, 9, -3, -7, -7, -8, 3, -1,
+                    4, 7, -6, 1, 0, -5, -1, -8,
+                    13, 8, 8, 10, 13, 0, 2, -7,
+                    0, 0, 0, 0, 0, 0, 0, 0},
+            { // Knight
+                    -58, -38, -13, -28, -31, -27, -63, -99,
+                    -25, -8, -25, -2, -9, -25, -24, -52,
+                    -24, -20, 10, 9, -1, -9, -19, -41,
+                    -17, 3, 22, 22, 22, 11, 8, -18,
+                    -18, -6, 16, 25, 16, 17, 4, -18,
+                    -23, -3, -1, 15, 10, -3, -20, -22,
+                    -42, -20, -10, -5, -2, -20, -23, -44,
+                    -29, -51, -23, -15, -22, -18, -50, -64},
+            { // Bishop
+                    -14, -21, -11, -8, -7, -9, -17, -24,
+                    -8, -4, 7, -12, -3, -13, -4, -14,
+                    2, -8, 0, -1, -2, 6, 0, 4,
+                    -3, 9, 12, 9, 14, 10, 3, 2,
+                    -6, 3, 13, 19, 7, 10, -3, -9,
+                    -12, -3, 8, 10, 13, 3, -7, -15,
+                    -14, -18, -7, -1, 4, -9, -15, -27,
+                    -23, -9, -23, -5, -9, -16, -5, -17},
+            { // Rook
+                    13, 10, 18, 15, 12, 12, 8, 5,
+                    11, 13, 13, 11, -3, 3, 8, 3,
+                    7, 7, 7, 5, 4, -3, -5, -3,
+                    4, 3, 13, 1, 2, 1, -1, 2,
+                    3, 5, 8, 4, -5, -6, -8, -11,
+                    -4, 0, -5, -1, -7, -12, -8, -16,
+                    -6, -6, 0, 2, -9, -9, -11, -3,
+                    -9, 2, 3, -1, -5, -13, 4, -20},
+            { // Queen
+                    -9, 22, 22, 27, 27, 19, 10, 20,
+                    -17, 20, 32, 41, 58, 25, 30, 0,
+                    -20, 6, 9, 49, 47, 35, 19, 9,
+                    3, 22, 24, 45, 57, 40, 57, 36,
+                    -18, 28, 19, 47, 31, 34, 39, 23,
+                    -16, -27, 15, 6, 9, 17, 10, 5,
+                    -22, -23, -30, -16, -16, -23, -36, -32,
+                    -33, -28, -22, -43, -5, -32, -20, -41},
+            { // King
+                    -74, -35, -18, -18, -11, 15, 4, -17,
+                    -12, 17, 14, 17, 17, 38, 23, 11,
+                    10, 17, 23, 15, 20, 45, 44, 13,
+                    -8, 22, 24, 27, 26, 33, 26, 3,
+                    -18, -4, 21, 24, 27, 23, 9, -11,
+                    -19, -3, 11, 21, 23, 16, 7, -9,
+                    -27, -11, 4, 13, 14, 4, -5, -17,
+                    -53, -34, -21, -11, -28, -14, -24, -43}};
+
+    static {
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            for (int square = 0; square < 64; square++) {
+                MIDDLEGAME[type][square] = MIDDLEGAME_VALUES[type] + MIDDLEGAME_SQUARES[type][square];
+                ENDGAME[type][square] = ENDGAME_VALUES[type] + ENDGAME_SQUARES[type][square];
+                // Flipping the row mirrors a square to the other side of the board
+                MIDDLEGAME[6 + type][square] = -(MIDDLEGAME_VALUES[type] + MIDDLEGAME_SQUARES[type][square ^ 56]);
+                ENDGAME[6 + type][square] = -(ENDGAME_VALUES[type] + ENDGAME_SQUARES[type][square ^ 56]);
+            }
+        }
+        for (int column = 0; column < 8; column++) {
+            ADJACENT_FILES[column] = (column > 0 ? Bitboards.FILES[column - 1] : 0)
+                    | (column < 7 ? Bitboards.FILES[column + 1] : 0);
+        }
+        for (int square = 0; square < 64; square++) {
+            int row = square / 8;
+            long files = Bitboards.FILES[square % 8] | ADJACENT_FILES[square % 8];
+            // White pawns move towards row 0, so the rows in front of them are the lower ones
+            long belowRow = (1L << (row * 8)) - 1;
+            long aboveRow = row == 7 ? 0 : -1L << ((row + 1) * 8);
+            PASSED_MASKS[Position.WHITE][square] = files & belowRow;
+            PASSED_MASKS[Position.BLACK][square] = files & aboveRow;
+            SUPPORT_MASKS[Position.WHITE][square] = ADJACENT_FILES[square % 8] & ~belowRow;
+            SUPPORT_MASKS[Position.BLACK][square] = ADJACENT_FILES[square % 8] & ~aboveRow;
+        }
+    }
+
+    private Evaluation() {
+    }
+
+    /**
+     * Returns the score of the position for the side to move, working out the pawn structure from
+     * scratch.
+     */
+    public static int evaluate(Position position) {
+        return evaluate(position, null);
+    }
+
+    /**
+     * Returns the score of the position for the side to move: the middlegame and endgame sums
+     * kept by the position plus the pawn structure, weighted by its game phase. The pawn structure
+     * comes from the given table, or is worked out from scratch if it is null.
+     */
+    public static int evaluate(Position position, PawnTable pawns) {
+        int pawnScore;
+        long passed;
+        if (pawns != null) {
+            int slot = pawns.probe(position);
+            pawnScore = pawns.score(slot);
+            passed = pawns.passed(slot);
+        } else {
+            passed = passedPawns(position);
+            pawnScore = pawnStructure(position, passed);
+        }
+        int middlegame = position.getMiddlegameScore() + middlegame(pawnScore);
+        int endgame = position.getEndgameScore() + endgame(pawnScore) + freePassedPawns(position, passed);
+        int phase = Math.min(position.getPhase(), MAX_PHASE);
+        int score = (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+        return position.getSideToMove() == Position.WHITE ? score : -score;
+    }
+
+    /**
+     * Returns the passed pawns of both sides: pawns with no enemy pawn in front of them on their
+     * own or a neighbouring column, and no pawn of their own in front of them either.
+     */
+    public static long passedPawns(Position position) {
+        long passed = 0;
+        for (int side = Position.WHITE; side <= Position.BLACK; side++) {
+            long own = position.getBitboard(side, Position.PAWN);
+            long enemy = position.getBitboard(side ^ 1, Position.PAWN);
+            long pawns = own;
+            while (pawns != 0) {
+                int square = Long.numberOfTrailingZeros(pawns);
+                pawns &= pawns - 1;
+                long front = PASSED_MASKS[side][square];
+                if ((front & enemy) == 0 && (front & Bitboards.FILES[square % 8] & own) == 0) {
+                    passed |= 1L << square;
+                }
+            }
+        }
+        return passed;
+    }
+
+    /**
+     * Returns the packed middlegame and endgame pawn structure score from white's point of view,
+     * given the passed pawns.
+     */
+    public static int pawnStructure(Position position, long passed) {
+        int middlegame = 0;
+        int endgame = 0;
+        for (int side = Position.WHITE; side <= Position.BLACK; side++) {
+            int sign = side == Position.WHITE ? 1 : -1;
+            long own = position.getBitboard(side, Position.PAWN);
+            long enemy = position.getBitboard(side ^ 1, Position.PAWN);
+            for (int column = 0; column < 8; column++) {
+                int count = Long.bitCount(own & Bitboards.FILES[column]);
+                if (count > 1) {
+                    middlegame += sign * DOUBLED_MIDDLEGAME * (count - 1);
+                    endgame += sign * DOUBLED_ENDGAME * (count - 1);
+                }
+            }
+            long pawns = own;
+            while (pawns != 0) {
+                int square = Long.numberOfTrailingZeros(pawns);
+                pawns &= pawns - 1;
+                int column = square % 8;
+                int stop = side == Position.WHITE ? square - 8 : square + 8;
+                if ((own & ADJACENT_FILES[column]) == 0) {
+                    middlegame += sign * ISOLATED_MIDDLEGAME;
+                    endgame += sign * ISOLATED_ENDGAME;
+                } else if ((own & SUPPORT_MASKS[side][square]) == 0
+                        && (Bitboards.PAWN_ATTACKS[side][stop] & enemy) != 0) {
+                    // No pawn can come up to support it, and it cannot advance safely
+                    middlegame += sign * BACKWARD_MIDDLEGAME;
+                    endgame += sign * BACKWARD_ENDGAME;
+                }
+                if ((passed & (1L << square)) != 0) {
+                    int advance = side == Position.WHITE ? 7 - square / 8 : square / 8;
+                    middlegame += sign * PASSED_MIDDLEGAME[advance];
+                    endgame += sign * PASSED_ENDGAME[advance];
+                }
+            }
+        }
+        return pack(middlegame, endgame);
+    }
+
+    /**
+     * Returns the endgame bonus, from white's point of view, of the passed pawns whose next
+     * square is empty.
+     */
+    private static int freePassedPawns(Position position, long passed) {
+        int endgame = 0;
+        long white = position.getBitboard(Position.WHITE, Position.PAWN);
+        long occupied = position.getOccupancy();
+        while (passed != 0) {
+            int square = Long.numberOfTrailingZeros(passed);
+            passed &= passed - 1;
+            if ((white & (1L << square)) != 0) {
+                if ((occupied & (1L << (square - 8))) == 0) {
+                    endgame += FREE_PASSED_ENDGAME[7 - square / 8];
+                }
+            } else if ((occupied & (1L << (square + 8))) == 0) {
+                endgame -= FREE_PASSED_ENDGAME[square / 8];
+            }
+        }
+        return endgame;
+    }
+
+    /**
+     * Packs a middlegame and an endgame score into one int, the endgame score in the upper half.
+     */
+    private static int pack(int middlegame, int endgame) {
+        return (endgame << 16) + middlegame;
+    }
+
+    /**
+     * Returns the middlegame score of a packed score.
+     */
+    private static int middlegame(int packed) {
+        return (short) packed;
+    }
+
+    /**
+     * Returns the endgame score of a packed score.
+     */
+    private static int endgame(int packed) {
+        return (packed + 0x8000) >> 16;
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.Arrays;
+
+/**
+ * Transposition table whose entries live in a long array on the Java heap. Java arrays limit it
+ * to 2^29 entries (8 GB).
+ */
+public class HeapTranspositionTable extends TranspositionTable {
+
+    /**
+     * Pairs of longs, key XOR data then data, for each entry.
+     */
+    private long[] entries;
+
+    /**
+     * Creates a table that takes at most the given number of megabytes.
+     */
+    public HeapTranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    @Override
+    protected long maxEntries() {
+        return 1 << 29;
+    }
+
+    @Override
+    protected void allocate(long count) {
+        // Drop the old array first so that both do not have to fit at once
+        entries = null;
+        entries = new long[(int) (2 * count)];
+    }
+
+    @Override
+    protected void erase() {
+        Arrays.fill(entries, 0);
+    }
+
+    @Override
+    protected long checkAt(long entry) {
+        return entries[(int) (2 * entry)];
+    }
+
+    @Override
+    protected long dataAt(long entry) {
+        return entries[(int) (2 * entry + 1)];
+    }
+
+    @Override
+    protected void write(long entry, long check, long data) {
+        int index = (int) (2 * entry);
+        entries[index] = check;
+        entries[index + 1] = data;
+    }
+}
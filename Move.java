@@ -0,0 +1,112 @@
+/**
+ * Moves produced by the MoveGenerator are packed into a single int so that they can be stored in
+ * plain int arrays:
+ * bits 0-5 hold the origin square, bits 6-11 the destination square, bits 12-14 the piece type
+ * promoted to, bits 15-17 the move flag, bits 18-21 the moving piece and bits 22-25 the captured
+ * piece plus one, 0 meaning nothing is captured. Pieces are Position bitboard indexes
+ * (side * 6 + type).
+ */
+public final class Move {
+
+    /**
+     * Move flags.
+     */
+    public static final int NORMAL = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int EN_PASSANT = 2;
+    public static final int CASTLE = 3;
+    public static final int PROMOTION = 4;
+
+    private Move() {
+    }
+
+    /**
+     * Packs a move that is not a promotion. captured is -1 if the move captures nothing.
+     */
+    public static int of(int from, int to, int piece, int captured, int flag) {
+        return from | (to << 6) | (flag << 15) | (piece << 18) | ((captured + 1) << 22);
+    }
+
+    /**
+     * Packs a promotion to the given Position piece type. captured is -1 if the move captures
+     * nothing.
+     */
+    public static int promotion(int from, int to, int piece, int captured, int type) {
+        return from | (to << 6) | (type << 12) | (PROMOTION << 15) | (piece << 18) | ((captured + 1) << 22);
+    }
+
+    /**
+     * Returns the origin square of a move.
+     */
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    /**
+     * Returns the destination square of a move.
+     */
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * Returns the piece type a promotion promotes to.
+     */
+    public static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    /**
+     * Returns the flag of a move.
+     */
+    public static int flag(int move) {
+        return (move >>> 15) & 7;
+    }
+
+    /**
+     * Returns the piece that moves.
+     */
+    public static int piece(int move) {
+        return (move >>> 18) & 15;
+    }
+
+    /**
+     * Returns the piece a move captures, the pawn taken en passant included, or -1 if it captures
+     * nothing.
+     */
+    public static int captured(int move) {
+        return ((move >>> 22) & 15) - 1;
+    }
+
+    /**
+     * Returns whether a move captures a piece.
+     */
+    public static boolean isCapture(int move) {
+        return (move & (15 << 22)) != 0;
+    }
+
+    /**
+     * Returns whether a move is quiet: it captures nothing and does not promote.
+     */
+    public static boolean isQuiet(int move) {
+        return !isCapture(move) && flag(move) != PROMOTION;
+    }
+
+    /**
+     * Returns the name of a square, e.g. "e4".
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + square % 8) + (8 - square / 8);
+    }
+
+    /**
+     * Returns a move in long algebraic notation, e.g. "e2e4" or "e7e8q".
+     */
+    public static String toString(int move) {
+        String text = squareName(from(move)) + squareName(to(move));
+        if (flag(move) == PROMOTION) {
+            text += "pnbrqk".charAt(promotion(move));
+        }
+        return text;
+    }
+}
@@ -0,0 +1,468 @@
+/**
+ * The MoveGenerator produces every legal move for one side of a Position in a single pass over its
+ * bitboards. Moves are written into a caller supplied int array as packed Move ints, so generating
+ * moves does not allocate.
+ */
+public final class MoveGenerator {
+
+    /**
+     * Upper bound on the number of legal moves in any chess position.
+     */
+    public static final int MAX_MOVES = 256;
+
+    /**
+     * Squares the king passes through when castling, and the squares between king and rook that
+     * must be empty, indexed by castling rights bit order (K, Q, k, q).
+     */
+    private static final int[] CASTLE_KING_FROM = {60, 60, 4, 4};
+    private static final int[] CASTLE_KING_TO = {62, 58, 6, 2};
+    private static final int[] CASTLE_ROOK_FROM = {63, 56, 7, 0};
+    private static final long[] CASTLE_EMPTY = {
+            (1L << 61) | (1L << 62),
+            (1L << 57) | (1L << 58) | (1L << 59),
+            (1L << 5) | (1L << 6),
+            (1L << 1) | (1L << 2) | (1L << 3)};
+    private static final int[][] CASTLE_SAFE = {{60, 61, 62}, {60, 59, 58}, {4, 5, 6}, {4, 3, 2}};
+
+    /**
+     * Which moves generate produces: all of them, only captures and promotions, or only the rest.
+     */
+    private static final int ALL = 0;
+    private static final int CAPTURES = 1;
+    private static final int QUIETS = 2;
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Writes every legal move for the side to move into moves and returns how many there are.
+     */
+    public static int generateLegalMoves(Position position, int[] moves) {
+        return generateLegalMoves(position, position.getSideToMove(), moves);
+    }
+
+    /**
+     * Writes every legal move for the given side into moves and returns how many there are.
+     */
+    public static int generateLegalMoves(Position position, int side, int[] moves) {
+        return generate(position, side, moves, ALL, 0);
+    }
+
+    /**
+     * Writes the legal captures, en passant captures and promotions of the side to move into moves
+     * and returns how many there are. These are the moves the quiescence search looks at.
+     */
+    public static int generateCaptures(Position position, int[] moves) {
+        return generate(position, position.getSideToMove(), moves, CAPTURES, 0);
+    }
+
+    /**
+     * Writes the legal moves of the side to move that generateCaptures leaves out, the quiet moves
+     * and castling, into moves from index start on and returns how many there are.
+     */
+    public static int generateQuiets(Position position, int[] moves, int start) {
+        return generate(position, position.getSideToMove(), moves, QUIETS, start) - start;
+    }
+
+    /**
+     * Writes the legal moves of the given kind for the given side into moves from index start on
+     * and returns the index after the last one.
+     *
+     * Only en passant captures are tried against the king's safety one by one. The king is kept
+     * off the squares the attack maps mark, and the other pieces to their pin lines and, when the
+     * king is in check, to the squares that take the checker or block it, which leaves nothing
+     * illegal to filter out.
+     */
+    private static int generate(Position position, int side, int[] moves, int kind, int start) {
+        int them = side ^ 1;
+        long own = position.getOccupancy(side);
+        long enemy = position.getOccupancy(them);
+        long occupied = own | enemy;
+        long targets = kind == CAPTURES ? enemy : kind == QUIETS ? ~occupied : ~own;
+        int kingSquare = position.getKingSquare(side);
+        // Squares the pieces other than the king may move to
+        long destinations = -1L;
+        long pinned = 0;
+        if (kingSquare >= 0) {
+            long checkers = position.getCheckers(side);
+            if (Long.bitCount(checkers) > 1) {
+                destinations = 0;
+            } else if (checkers != 0) {
+                destinations = checkers | Bitboards.BETWEEN[kingSquare][Long.numberOfTrailingZeros(checkers)];
+            }
+            pinned = position.getPinned(side);
+        }
+        long pieceTargets = targets & destinations;
+        int count = start;
+
+        if (destinations != 0) {
+            count = pawnMoves(position, side, enemy, occupied, kind, destinations, pinned, kingSquare,
+                    moves, count);
+        }
+
+        // A pinned knight always leaves its pin line
+        long knights = position.getBitboard(side, Position.KNIGHT) & ~pinned;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            count = addMoves(position, from, Bitboards.KNIGHT_ATTACKS[from] & pieceTargets, moves, count);
+        }
+        long bishops = position.getBitboard(side, Position.BISHOP) | position.getBitboard(side, Position.QUEEN);
+        while (bishops != 0) {
+            int from = Long.numberOfTrailingZeros(bishops);
+            bishops &= bishops - 1;
+            count = addMoves(position, from, Bitboards.bishopAttacks(from, occupied) & pieceTargets
+                    & pinLine(pinned, kingSquare, from), moves, count);
+        }
+        long rooks = position.getBitboard(side, Position.ROOK) | position.getBitboard(side, Position.QUEEN);
+        while (rooks != 0) {
+            int from = Long.numberOfTrailingZeros(rooks);
+            rooks &= rooks - 1;
+            count = addMoves(position, from, Bitboards.rookAttacks(from, occupied) & pieceTargets
+                    & pinLine(pinned, kingSquare, from), moves, count);
+        }
+        if (kingSquare >= 0) {
+            long kingTargets = Bitboards.KING_ATTACKS[kingSquare] & targets & ~kingDanger(position, side, kingSquare);
+            while (kingTargets != 0) {
+                int to = Long.numberOfTrailingZeros(kingTargets);
+                kingTargets &= kingTargets - 1;
+                moves[count++] = Move.of(kingSquare, to, side * 6 + Position.KING, position.pieceAt(to), Move.NORMAL);
+            }
+            if (kind != CAPTURES && destinations == -1L) {
+                count = castlingMoves(position, side, occupied, moves, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the squares the king of a side may not step to: those the other side attacks, read
+     * from the position's attack maps, and those behind the king on the line of a rook, bishop or
+     * queen checking it, which the king itself shields in the maps.
+     */
+    private static long kingDanger(Position position, int side, int kingSquare) {
+        long danger = position.getAttacked(side ^ 1);
+        long checkers = position.getCheckers(side) & ~position.getBitboard(side ^ 1, Position.PAWN);
+        while (checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkers &= checkers - 1;
+            // A knight shares no line with the king, so this is empty for it
+            danger |= Bitboards.LINE[checker][kingSquare] & ~(1L << checker);
+        }
+        return danger;
+    }
+
+    /**
+     * Returns the pieces of a side that stand alone between their king and an enemy rook, bishop
+     * or queen looking at the king along that line. A pinned piece may only move along the line.
+     */
+    public static long pinnedPieces(Position position, int side) {
+        int kingSquare = position.getKingSquare(side);
+        return kingSquare < 0 ? 0 : pinnedPieces(position, side, kingSquare, position.getOccupancy());
+    }
+
+    private static long pinnedPieces(Position position, int side, int kingSquare, long occupied) {
+        int them = side ^ 1;
+        long queens = position.getBitboard(them, Position.QUEEN);
+        long snipers = (Bitboards.rookAttacks(kingSquare, 0) & (position.getBitboard(them, Position.ROOK) | queens))
+                | (Bitboards.bishopAttacks(kingSquare, 0) & (position.getBitboard(them, Position.BISHOP) | queens));
+        long pinned = 0;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long between = Bitboards.BETWEEN[kingSquare][sniper] & occupied;
+            if ((between & (between - 1)) == 0) {
+                pinned |= between;
+            }
+        }
+        return pinned & position.getOccupancy(side);
+    }
+
+    /**
+     * Returns the squares the piece on a square may move to as far as pins go: the line through it
+     * and its king if it is pinned, every square otherwise.
+     */
+    private static long pinLine(long pinned, int kingSquare, int from) {
+        return (pinned & (1L << from)) == 0 ? -1L : Bitboards.LINE[kingSquare][from];
+    }
+
+    /**
+     * Adds the pushes, double pushes, captures, en passant captures and promotions of a side's
+     * pawns, or only the captures and promotions, or only the rest. Only moves to the squares in
+     * destinations and along the pin lines of pinned pawns are added.
+     */
+    private static int pawnMoves(Position position, int side, long enemy, long occupied, int kind,
+            long destinations, long pinned, int kingSquare, int[] moves, int count) {
+        long pawns = position.getBitboard(side, Position.PAWN);
+        long empty = ~occupied;
+        // White pawns move towards row 0, black pawns towards row 7
+        int forward = side == Position.WHITE ? -8 : 8;
+        long singles;
+        long doubles;
+        long promotionRow;
+        if (side == Position.WHITE) {
+            singles = (pawns >>> 8) & empty;
+            doubles = ((singles & Bitboards.ROWS[5]) >>> 8) & empty;
+            promotionRow = Bitboards.ROWS[0];
+        } else {
+            singles = (pawns << 8) & empty;
+            doubles = ((singles & Bitboards.ROWS[2]) << 8) & empty;
+            promotionRow = Bitboards.ROWS[7];
+        }
+        singles &= destinations;
+        doubles &= destinations;
+        if (kind == CAPTURES) {
+            singles &= promotionRow;
+            doubles = 0;
+        } else if (kind == QUIETS) {
+            singles &= ~promotionRow;
+        }
+        while (singles != 0) {
+            int to = Long.numberOfTrailingZeros(singles);
+            singles &= singles - 1;
+            if ((pinLine(pinned, kingSquare, to - forward) & (1L << to)) != 0) {
+                count = addPawnMove(position, to - forward, to, promotionRow, moves, count);
+            }
+        }
+        while (doubles != 0) {
+            int to = Long.numberOfTrailingZeros(doubles);
+            doubles &= doubles - 1;
+            if ((pinLine(pinned, kingSquare, to - 2 * forward) & (1L << to)) != 0) {
+                moves[count++] = Move.of(to - 2 * forward, to, side * 6 + Position.PAWN, -1, Move.DOUBLE_PUSH);
+            }
+        }
+        if (kind == QUIETS) {
+            return count;
+        }
+        long passant = position.getPassant() & empty;
+        // En passant answers a check by taking the checking pawn or by landing between checker and king
+        long victim = side == Position.WHITE ? passant << 8 : passant >>> 8;
+        if (((passant | victim) & destinations) == 0) {
+            passant = 0;
+        }
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long attacks = Bitboards.PAWN_ATTACKS[side][from];
+            long captures = attacks & enemy & destinations & pinLine(pinned, kingSquare, from);
+            while (captures != 0) {
+                int to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                count = addPawnMove(position, from, to, promotionRow, moves, count);
+            }
+            // En passant takes two pawns off one row, which a pin line cannot see, so it is tried
+            long passantCaptures = attacks & passant;
+            while (passantCaptures != 0) {
+                int to = Long.numberOfTrailingZeros(passantCaptures);
+                passantCaptures &= passantCaptures - 1;
+                count = addIfLegal(position, side, Move.of(from, to, side * 6 + Position.PAWN,
+                        (side ^ 1) * 6 + Position.PAWN, Move.EN_PASSANT), moves, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds a single pawn push or capture, expanding it into the four promotions when it reaches
+     * the last row.
+     */
+    private static int addPawnMove(Position position, int from, int to, long promotionRow, int[] moves,
+            int count) {
+        int pawn = position.pieceAt(from);
+        int captured = position.pieceAt(to);
+        if ((promotionRow & (1L << to)) == 0) {
+            moves[count++] = Move.of(from, to, pawn, captured, Move.NORMAL);
+            return count;
+        }
+        moves[count++] = Move.promotion(from, to, pawn, captured, Position.QUEEN);
+        moves[count++] = Move.promotion(from, to, pawn, captured, Position.ROOK);
+        moves[count++] = Move.promotion(from, to, pawn, captured, Position.BISHOP);
+        moves[count++] = Move.promotion(from, to, pawn, captured, Position.KNIGHT);
+        return count;
+    }
+
+    /**
+     * Adds a normal move from the given square to every square in targets, all of which must be
+     * legal destinations.
+     */
+    private static int addMoves(Position position, int from, long targets, int[] moves, int count) {
+        int piece = position.pieceAt(from);
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = Move.of(from, to, piece, position.pieceAt(to), Move.NORMAL);
+        }
+        return count;
+    }
+
+    /**
+     * Adds the castling moves that a side's rights, the empty squares and the attacked squares
+     * currently allow.
+     */
+    private static int castlingMoves(Position position, int side, long occupied, int[] moves, int count) {
+        for (int i = 2 * side; i < 2 * side + 2; i++) {
+            if (canCastle(position, side, i, occupied)) {
+                moves[count++] = Move.of(CASTLE_KING_FROM[i], CASTLE_KING_TO[i], side * 6 + Position.KING, -1,
+                        Move.CASTLE);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether a side may castle the given way (castling rights bit order) right now.
+     */
+    private static boolean canCastle(Position position, int side, int i, long occupied) {
+        if ((position.getCastlingRights() & (1 << i)) == 0
+                || position.getKingSquare(side) != CASTLE_KING_FROM[i]
+                || (position.getBitboard(side, Position.ROOK) & (1L << CASTLE_ROOK_FROM[i])) == 0
+                || (occupied & CASTLE_EMPTY[i]) != 0) {
+            return false;
+        }
+        for (int square : CASTLE_SAFE[i]) {
+            if (position.isAttacked(square, side ^ 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a move, typically one remembered from another position such as a
+     * transposition table or killer move, is legal for the side to move. Checking it costs far
+     * less than generating the moves it would be found among.
+     */
+    public static boolean isLegal(Position position, int move) {
+        int side = position.getSideToMove();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int piece = position.pieceAt(from);
+        long own = position.getOccupancy(side);
+        long occupied = position.getOccupancy();
+        long toBit = 1L << to;
+        int captured = flag == Move.EN_PASSANT ? (side ^ 1) * 6 + Position.PAWN : position.pieceAt(to);
+        if (move == Search.NO_MOVE || piece < 0 || piece / 6 != side || (own & toBit) != 0
+                || Move.piece(move) != piece || Move.captured(move) != captured) {
+            return false;
+        }
+        int type = piece % 6;
+        if (flag == Move.CASTLE) {
+            for (int i = 2 * side; i < 2 * side + 2; i++) {
+                if (from == CASTLE_KING_FROM[i] && to == CASTLE_KING_TO[i]) {
+                    return canCastle(position, side, i, occupied);
+                }
+            }
+            return false;
+        }
+        if (type == Position.PAWN) {
+            int forward = side == Position.WHITE ? -8 : 8;
+            boolean lastRow = (Bitboards.ROWS[side == Position.WHITE ? 0 : 7] & toBit) != 0;
+            boolean capture = (Bitboards.PAWN_ATTACKS[side][from] & toBit) != 0;
+            boolean valid = switch (flag) {
+                case Move.NORMAL, Move.PROMOTION -> (flag == Move.PROMOTION) == lastRow
+                        && (capture ? (position.getOccupancy(side ^ 1) & toBit) != 0
+                        : to == from + forward && (occupied & toBit) == 0);
+                case Move.DOUBLE_PUSH -> to == from + 2 * forward
+                        && (Bitboards.ROWS[side == Position.WHITE ? 6 : 1] & (1L << from)) != 0
+                        && (occupied & (toBit | 1L << (from + forward))) == 0;
+                case Move.EN_PASSANT -> capture && (position.getPassant() & toBit) != 0;
+                default -> false;
+            };
+            if (!valid || (flag == Move.PROMOTION
+                    && (Move.promotion(move) < Position.KNIGHT || Move.promotion(move) > Position.QUEEN))) {
+                return false;
+            }
+        } else {
+            if (flag != Move.NORMAL || (Bitboards.attacks(piece, from, occupied) & toBit) == 0) {
+                return false;
+            }
+            if (type == Position.KING) {
+                return (kingDanger(position, side, from) & toBit) == 0;
+            }
+        }
+        return leavesKingSafe(position, side, move);
+    }
+
+    /**
+     * Stores the move if it does not leave the moving side's king attacked.
+     */
+    private static int addIfLegal(Position position, int side, int move, int[] moves, int count) {
+        if (leavesKingSafe(position, side, move)) {
+            moves[count++] = move;
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether the side's king is safe after the move, by testing the king square against
+     * the occupancy the move would leave behind.
+     */
+    private static boolean leavesKingSafe(Position position, int side, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        long fromBit = 1L << from;
+        long toBit = 1L << to;
+        int kingSquare = position.getKingSquare(side);
+        if (kingSquare < 0) {
+            return true;
+        }
+        long captured = toBit;
+        long occupied = (position.getOccupancy() & ~fromBit) | toBit;
+        if (Move.flag(move) == Move.EN_PASSANT) {
+            long victim = side == Position.WHITE ? toBit << 8 : toBit >>> 8;
+            captured |= victim;
+            occupied &= ~victim;
+        }
+        if (kingSquare == from) {
+            kingSquare = to;
+        }
+        return !isAttacked(position, kingSquare, side ^ 1, occupied, ~captured);
+    }
+
+    /**
+     * Returns whether a square is attacked by the given side, given an occupancy and a mask of the
+     * attacking side's pieces still on the board.
+     */
+    public static boolean isAttacked(Position position, int square, int bySide, long occupied, long alive) {
+        long pawns = position.getBitboard(bySide, Position.PAWN) & alive;
+        long knights = position.getBitboard(bySide, Position.KNIGHT) & alive;
+        long kings = position.getBitboard(bySide, Position.KING) & alive;
+        long queens = position.getBitboard(bySide, Position.QUEEN) & alive;
+        long diagonals = (position.getBitboard(bySide, Position.BISHOP) & alive) | queens;
+        long straights = (position.getBitboard(bySide, Position.ROOK) & alive) | queens;
+        return (Bitboards.PAWN_ATTACKS[bySide ^ 1][square] & pawns) != 0
+                || (Bitboards.KNIGHT_ATTACKS[square] & knights) != 0
+                || (Bitboards.KING_ATTACKS[square] & kings) != 0
+                || (Bitboards.bishopAttacks(square, occupied) & diagonals) != 0
+                || (Bitboards.rookAttacks(square, occupied) & straights) != 0;
+    }
+
+    /**
+     * Returns every piece of either side that attacks a square, given an occupancy. Pieces not in
+     * occupied still count as attackers, so callers removing pieces should mask them off.
+     */
+    public static long attackersTo(Position position, int square, long occupied) {
+        long queens = position.getBitboard(Position.WHITE, Position.QUEEN)
+                | position.getBitboard(Position.BLACK, Position.QUEEN);
+        long diagonals = position.getBitboard(Position.WHITE, Position.BISHOP)
+                | position.getBitboard(Position.BLACK, Position.BISHOP) | queens;
+        long straights = position.getBitboard(Position.WHITE, Position.ROOK)
+                | position.getBitboard(Position.BLACK, Position.ROOK) | queens;
+        return (Bitboards.PAWN_ATTACKS[Position.BLACK][square] & position.getBitboard(Position.WHITE, Position.PAWN))
+                | (Bitboards.PAWN_ATTACKS[Position.WHITE][square] & position.getBitboard(Position.BLACK, Position.PAWN))
+                | (Bitboards.KNIGHT_ATTACKS[square] & (position.getBitboard(Position.WHITE, Position.KNIGHT)
+                        | position.getBitboard(Position.BLACK, Position.KNIGHT)))
+                | (Bitboards.KING_ATTACKS[square] & (position.getBitboard(Position.WHITE, Position.KING)
+                        | position.getBitboard(Position.BLACK, Position.KING)))
+                | (Bitboards.bishopAttacks(square, occupied) & diagonals)
+                | (Bitboards.rookAttacks(square, occupied) & straights);
+    }
+
+    /**
+     * Returns whether the given side's king is currently attacked.
+     */
+    public static boolean inCheck(Position position, int side) {
+        return position.getCheckers(side) != 0;
+    }
+}
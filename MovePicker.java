@@ -0,0 +1,245 @@
+/**
+ * The MovePicker hands out the legal moves of one position in the order the search should try
+ * them, and only generates each group of moves once the groups before it are used up:
+ * the transposition table move,
+ * captures and promotions that do not lose material, most valuable victim and least valuable
+ * attacker first,
+ * the two killer moves of the ply, quiet moves that recently refuted a sibling position,
+ * the countermove, the quiet move that last refuted the opponent's previous move,
+ * the other quiet moves, highest history score first,
+ * and last the captures that the static exchange evaluation says lose material.
+ * A cutoff by one of the first moves then saves generating the quiet moves at all.
+ *
+ * The transposition table move, killers and countermove come from other positions, so they are
+ * checked with MoveGenerator.isLegal first, and skipped when the generated moves come up again.
+ * The search keeps one picker per ply.
+ */
+public class MovePicker {
+
+    /**
+     * Stages, in the order the picker goes through them.
+     */
+    private static final int TABLE_MOVE = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int GOOD_CAPTURES = 2;
+    private static final int FIRST_KILLER = 3;
+    private static final int SECOND_KILLER = 4;
+    private static final int COUNTERMOVE = 5;
+    private static final int GENERATE_QUIETS = 6;
+    private static final int QUIETS = 7;
+    private static final int BAD_CAPTURES = 8;
+    private static final int DONE = 9;
+
+    /**
+     * Generated moves: captures first, then quiet moves from quietStart on, with their ordering
+     * scores.
+     */
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+
+    private final StaticExchange exchange;
+
+    /**
+     * History scores of the search, indexed [side][from + 64 * to], the low 12 bits of the move.
+     */
+    private final int[][] history;
+
+    private Position position;
+    private int stage;
+    private boolean capturesOnly;
+    private int tableMove;
+    private int firstKiller;
+    private int secondKiller;
+    private int counterMove;
+
+    /**
+     * Next move to hand out, end of the captures and end of the quiet moves.
+     */
+    private int index;
+    private int quietStart;
+    private int end;
+
+    /**
+     * First of the losing captures, which the good captures stage leaves at the end of the
+     * captures.
+     */
+    private int badStart;
+
+    /**
+     * Creates a picker that scores captures with the given evaluator and quiet moves with the
+     * given history table.
+     */
+    public MovePicker(StaticExchange exchange, int[][] history) {
+        this.exchange = exchange;
+        this.history = history;
+    }
+
+    /**
+     * Starts picking every legal move of the position. Any of the remembered moves may be NO_MOVE.
+     */
+    public void init(Position position, int tableMove, int firstKiller, int secondKiller, int counterMove) {
+        this.position = position;
+        this.tableMove = tableMove;
+        this.firstKiller = firstKiller;
+        this.secondKiller = secondKiller;
+        this.counterMove = counterMove;
+        capturesOnly = false;
+        stage = TABLE_MOVE;
+    }
+
+    /**
+     * Starts picking only the captures and promotions of the position that do not lose material.
+     */
+    public void initCaptures(Position position) {
+        init(position, Search.NO_MOVE, Search.NO_MOVE, Search.NO_MOVE, Search.NO_MOVE);
+        capturesOnly = true;
+        stage = GENERATE_CAPTURES;
+    }
+
+    /**
+     * Returns the next move to search, or NO_MOVE when there are none left.
+     */
+    public int next() {
+        while (true) {
+            switch (stage) {
+                case TABLE_MOVE -> {
+                    stage = GENERATE_CAPTURES;
+                    if (tableMove != Search.NO_MOVE && MoveGenerator.isLegal(position, tableMove)) {
+                        return tableMove;
+                    }
+                }
+                case GENERATE_CAPTURES -> {
+                    end = MoveGenerator.generateCaptures(position, moves);
+                    for (int i = 0; i < end; i++) {
+                        scores[i] = captureScore(moves[i]);
+                    }
+                    index = 0;
+                    badStart = end;
+                    stage = GOOD_CAPTURES;
+                }
+                case GOOD_CAPTURES -> {
+                    if (index < end) {
+                        int move = selectBest(end);
+                        if (scores[index] >= 0) {
+                            index++;
+                            if (move != tableMove) {
+                                return move;
+                            }
+                            continue;
+                        }
+                        badStart = index;
+                    }
+                    quietStart = end;
+                    stage = capturesOnly ? DONE : FIRST_KILLER;
+                }
+                case FIRST_KILLER -> {
+                    stage = SECOND_KILLER;
+                    if (isUsable(firstKiller)) {
+                        return firstKiller;
+                    }
+                }
+                case SECOND_KILLER -> {
+                    stage = COUNTERMOVE;
+                    if (secondKiller != firstKiller && isUsable(secondKiller)) {
+                        return secondKiller;
+                    }
+                }
+                case COUNTERMOVE -> {
+                    stage = GENERATE_QUIETS;
+                    if (counterMove != firstKiller && counterMove != secondKiller && isUsable(counterMove)) {
+                        return counterMove;
+                    }
+                }
+                case GENERATE_QUIETS -> {
+                    int count = MoveGenerator.generateQuiets(position, moves, quietStart);
+                    int side = position.getSideToMove();
+                    end = quietStart + count;
+                    for (int i = quietStart; i < end; i++) {
+                        scores[i] = history[side][moves[i] & 4095];
+                    }
+                    index = quietStart;
+                    stage = QUIETS;
+                }
+                case QUIETS -> {
+                    if (index < end) {
+                        int move = selectBest(end);
+                        index++;
+                        if (move != tableMove && move != firstKiller && move != secondKiller
+                                && move != counterMove) {
+                            return move;
+                        }
+                        continue;
+                    }
+                    index = badStart;
+                    stage = BAD_CAPTURES;
+                }
+                case BAD_CAPTURES -> {
+                    if (index < quietStart) {
+                        int move = moves[index++];
+                        if (move != tableMove) {
+                            return move;
+                        }
+                        continue;
+                    }
+                    stage = DONE;
+                }
+                default -> {
+                    return Search.NO_MOVE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the last move handed out was one of the history ordered quiet moves, rather
+     * than the table move, a capture, a killer or the countermove.
+     */
+    public boolean isLateQuiet() {
+        return stage == QUIETS;
+    }
+
+    /**
+     * Returns whether a killer or countermove can be handed out: a legal quiet move other than
+     * the transposition table move.
+     */
+    private boolean isUsable(int move) {
+        return move != Search.NO_MOVE && move != tableMove && Move.isQuiet(move)
+                && MoveGenerator.isLegal(position, move);
+    }
+
+    /**
+     * Gives a capture or promotion its ordering score: queen promotions first, then captures that
+     * do not lose material by victim and attacker, then the other promotions. Losing captures get
+     * their static exchange value, the only negative scores.
+     */
+    private int captureScore(int move) {
+        int attacker = Move.piece(move) % 6;
+        if (Move.flag(move) == Move.PROMOTION) {
+            return Move.promotion(move) == Position.QUEEN ? 1 << 16 : Move.promotion(move);
+        }
+        int victim = Move.captured(move) % 6;
+        // Taking a piece worth at least the attacker can never lose material
+        int gain = Evaluation.PIECE_VALUES[victim] >= Evaluation.PIECE_VALUES[attacker] ? 0
+                : exchange.evaluate(position, move);
+        return gain < 0 ? gain : 1 << 12 | (victim + 1) << 4 | (7 - attacker);
+    }
+
+    /**
+     * Moves the best scored of the moves from index to end to index and returns it.
+     */
+    private int selectBest(int end) {
+        int best = index;
+        for (int j = index + 1; j < end; j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int bestScore = scores[best];
+        scores[best] = scores[index];
+        scores[index] = bestScore;
+        return move;
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.stream.IntStream;
+
+/**
+ * Transposition table whose entries live outside the Java heap, so that tables of many gigabytes
+ * neither need a giant heap nor add to garbage collection work. The entries are split over
+ * buffers of at most 1 GB, since one buffer cannot hold more than 2 GB.
+ *
+ * By default the buffers are direct ByteBuffers, which count against -XX:MaxDirectMemorySize
+ * (the maximum heap size unless set). On Linux they get transparent huge pages when
+ * /sys/kernel/mm/transparent_hugepage/enabled is "always". Given a hugetlbfs mount such as
+ * /dev/hugepages, the table is instead mapped from a file there, which backs it with reserved huge
+ * pages (see /proc/sys/vm/nr_hugepages) and does not count against the direct memory limit.
+ */
+public class OffHeapTranspositionTable extends TranspositionTable {
+
+    /**
+     * Each buffer holds 2^CHUNK_SHIFT entries (1 GB), except for smaller tables.
+     */
+    private static final int CHUNK_SHIFT = 26;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    /**
+     * Directory on a hugetlbfs mount to map the table from, or null for direct buffers.
+     */
+    private final String hugePageDirectory;
+
+    /**
+     * Buffers holding the entries, two longs each.
+     */
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+
+    /**
+     * Creates a table that takes at most the given number of megabytes, mapped from a file in
+     * hugePageDirectory if it is not null.
+     */
+    public OffHeapTranspositionTable(int megabytes, String hugePageDirectory) {
+        this.hugePageDirectory = hugePageDirectory;
+        resize(megabytes);
+    }
+
+    @Override
+    protected long maxEntries() {
+        return 1L << 40;
+    }
+
+    @Override
+    protected void allocate(long count) {
+        release();
+        long chunkBytes = Math.min(count, 1L << CHUNK_SHIFT) * ENTRY_BYTES;
+        ByteBuffer[] buffers = new ByteBuffer[(int) (count * ENTRY_BYTES / chunkBytes)];
+        if (hugePageDirectory == null) {
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = ByteBuffer.allocateDirect((int) chunkBytes);
+            }
+        } else {
+            mapHugePages(buffers, chunkBytes);
+        }
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i].order(ByteOrder.nativeOrder());
+        }
+        chunks = buffers;
+    }
+
+    /**
+     * Maps every buffer from one file in the huge page directory. The file is deleted straight
+     * away, the mappings keep the memory until they are released.
+     *
+     * A hugetlbfs file can only be sized in whole huge pages, its block size, so a table smaller
+     * than one page still takes a whole page.
+     */
+    private void mapHugePages(ByteBuffer[] buffers, long chunkBytes) {
+        File file = null;
+        try {
+            File directory = new File(hugePageDirectory);
+            long pageBytes = Files.getFileStore(directory.toPath()).getBlockSize();
+            long tableBytes = buffers.length * chunkBytes;
+            file = File.createTempFile("transposition", ".table", directory);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                    FileChannel channel = raf.getChannel()) {
+                raf.setLength((tableBytes + pageBytes - 1) / pageBytes * pageBytes);
+                for (int i = 0; i < buffers.length; i++) {
+                    buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * chunkBytes, chunkBytes);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map a table in " + hugePageDirectory, e);
+        } finally {
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Frees the memory of the old buffers right away, before allocate replaces them, instead of
+     * waiting for the garbage collector to notice they are gone.
+     */
+    private void release() {
+        ByteBuffer[] old = chunks;
+        chunks = new ByteBuffer[0];
+        for (ByteBuffer buffer : old) {
+            free(buffer);
+        }
+    }
+
+    /**
+     * Frees a direct or mapped buffer through sun.misc.Unsafe, which the jdk.unsupported module
+     * still exports. If that fails the buffer is left to the garbage collector.
+     */
+    private static void free(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Freed whenever the buffer is collected
+        }
+    }
+
+    @Override
+    protected void erase() {
+        // Gigabytes of zeroes go faster with every core on them
+        IntStream.range(0, chunks.length).parallel().forEach(i -> {
+            ByteBuffer buffer = chunks[i];
+            for (int offset = 0; offset < buffer.capacity(); offset += 8) {
+                buffer.putLong(offset, 0);
+            }
+        });
+    }
+
+    @Override
+    protected long checkAt(long entry) {
+        return chunks[(int) (entry >>> CHUNK_SHIFT)].getLong((int) (entry & CHUNK_MASK) * ENTRY_BYTES);
+    }
+
+    @Override
+    protected long dataAt(long entry) {
+        return chunks[(int) (entry >>> CHUNK_SHIFT)].getLong((int) (entry & CHUNK_MASK) * ENTRY_BYTES + 8);
+    }
+
+    @Override
+    protected void write(long entry, long check, long data) {
+        ByteBuffer buffer = chunks[(int) (entry >>> CHUNK_SHIFT)];
+        int offset = (int) (entry & CHUNK_MASK) * ENTRY_BYTES;
+        buffer.putLong(offset, check);
+        buffer.putLong(offset + 8, data);
+    }
+}
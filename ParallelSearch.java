@@ -0,0 +1,176 @@
+import java.io.PrintStream;
+
+/**
+ * The ParallelSearch runs a Lazy SMP search: helper threads search the same root position as the
+ * main thread, each with its own Search and copy of the Position, and all of them share one
+ * transposition table. The helpers mostly serve to fill the table with results the main thread
+ * can use, and work on depths one ply ahead of it every other thread so that they do not all walk
+ * the same tree in step.
+ */
+public class ParallelSearch {
+
+    private final TranspositionTable table;
+
+    /**
+     * One Search per thread. Index 0 is the main thread, which runs on the caller's thread.
+     */
+    private final Search[] searches;
+
+    /**
+     * Result of the last search.
+     */
+    private int bestMove = Search.NO_MOVE;
+    private int score;
+    private int depth;
+
+    /**
+     * Creates a search that runs on the given number of threads and shares the given table.
+     */
+    public ParallelSearch(TranspositionTable table, int threads) {
+        this.table = table;
+        searches = new Search[Math.max(1, threads)];
+        for (int i = 0; i < searches.length; i++) {
+            searches[i] = new Search(table);
+            searches[i].setDepthOffset(i % 2);
+        }
+    }
+
+    /**
+     * Sets where the main thread prints information about each finished depth.
+     */
+    public void setOutput(PrintStream output) {
+        searches[0].setOutput(output);
+    }
+
+    /**
+     * Switches the selective pruning of every thread, see the Search setters of the same names.
+     */
+    public void setNullMovePruning(boolean enabled) {
+        for (Search search : searches) {
+            search.setNullMovePruning(enabled);
+        }
+    }
+
+    public void setLateMoveReductions(boolean enabled) {
+        for (Search search : searches) {
+            search.setLateMoveReductions(enabled);
+        }
+    }
+
+    public void setFutilityPruning(boolean enabled) {
+        for (Search search : searches) {
+            search.setFutilityPruning(enabled);
+        }
+    }
+
+    /**
+     * Searches the position on every thread until the main thread reaches maxDepth plies, about
+     * maxNodes nodes of its own or the timer's limits, then stops the helpers. Returns the best
+     * move of whichever thread finished the deepest search, preferring the main thread. The
+     * position is left as it was. A null timer sets no time limit.
+     */
+    public int search(Position position, int maxDepth, long maxNodes, TimeManager timer) {
+        table.newSearch();
+        for (Search search : searches) {
+            search.clearStop();
+        }
+        Thread[] helpers = new Thread[searches.length - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = searches[i + 1];
+            Position copy = new Position(position);
+            helpers[i] = new Thread(
+                    () -> helper.searchSharedTable(copy, maxDepth, Long.MAX_VALUE, null),
+                    "search-helper-" + (i + 1));
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+
+        searches[0].searchSharedTable(position, maxDepth, maxNodes, timer);
+
+        for (int i = 0; i < helpers.length; i++) {
+            // Seen even by a helper that has not started yet, as its flag was cleared above
+            searches[i + 1].stop();
+            try {
+                helpers[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        Search best = searches[0];
+        for (Search search : searches) {
+            if (search.getDepth() > best.getDepth() && search.getBestMove() != Search.NO_MOVE) {
+                best = search;
+            }
+        }
+        bestMove = best.getBestMove();
+        score = best.getScore();
+        depth = best.getDepth();
+        return bestMove;
+    }
+
+    /**
+     * Returns the best move of the last search.
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Returns the score of the last search's best move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the depth the last search's best move was found at.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of threads.
+     */
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /**
+     * Returns the number of nodes each thread visited in the last search, main thread first.
+     */
+    public long[] getThreadNodes() {
+        long[] nodes = new long[searches.length];
+        for (int i = 0; i < searches.length; i++) {
+            nodes[i] = searches[i].getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the fraction of pawn structure lookups of all threads in the last search that
+     * found the structure in their pawn table.
+     */
+    public double pawnHitRate() {
+        long probes = 0;
+        long hits = 0;
+        for (Search search : searches) {
+            probes += search.getPawnTable().getProbes();
+            hits += search.getPawnTable().getHits();
+        }
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * Returns the number of nodes all threads visited in the last search.
+     */
+    public long getNodes() {
+        long total = 0;
+        for (Search search : searches) {
+            total += search.getNodes();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * The PawnTable caches the pawn structure part of the evaluation, keyed by the Position's pawn
+ * key. Pawns move far less often than the other pieces, so most positions a search evaluates find
+ * their pawn structure already scored. Each entry holds the pawn structure score and the passed
+ * pawns of both sides.
+ *
+ * A table belongs to a single search thread, so it needs no synchronization. A new slot
+ * replaces whatever was there before.
+ */
+public class PawnTable {
+
+    /**
+     * Number of entries of the table a Search creates for itself.
+     */
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+
+    private final long[] keys;
+
+    /**
+     * Pawn structure score of each entry, middlegame and endgame packed by Evaluation.
+     */
+    private final int[] scores;
+
+    /**
+     * Passed pawns of both sides of each entry.
+     */
+    private final long[] passed;
+
+    private final int mask;
+    private long probes;
+    private long hits;
+
+    /**
+     * Creates a table with the given number of entries, rounded down to a power of two.
+     */
+    public PawnTable(int entries) {
+        int count = Integer.highestOneBit(Math.max(1, entries));
+        keys = new long[count];
+        scores = new int[count];
+        passed = new long[count];
+        mask = count - 1;
+        // Empty slots hold key 0, the key of having no pawns, and score 0 with no passed pawns,
+        // which is right for having no pawns
+    }
+
+    /**
+     * Returns the slot holding the pawn structure of the position, scoring it first if the table
+     * does not have it yet.
+     */
+    public int probe(Position position) {
+        long key = position.getPawnKey();
+        int slot = (int) key & mask;
+        probes++;
+        if (keys[slot] == key) {
+            hits++;
+        } else {
+            keys[slot] = key;
+            passed[slot] = Evaluation.passedPawns(position);
+            scores[slot] = Evaluation.pawnStructure(position, passed[slot]);
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the packed pawn structure score stored in a slot.
+     */
+    public int score(int slot) {
+        return scores[slot];
+    }
+
+    /**
+     * Returns the passed pawns stored in a slot.
+     */
+    public long passed(int slot) {
+        return passed[slot];
+    }
+
+    /**
+     * Zeroes the probe and hit counts.
+     */
+    public void resetStatistics() {
+        probes = 0;
+        hits = 0;
+    }
+
+    /**
+     * Returns how many times the table was probed since the statistics were last reset.
+     */
+    public long getProbes() {
+        return probes;
+    }
+
+    /**
+     * Returns how many probes found their pawn structure in the table.
+     */
+    public long getHits() {
+        return hits;
+    }
+}
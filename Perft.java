@@ -0,0 +1,144 @@
+/**
+ * Headless perft runner. Counts the leaf nodes of the legal move tree from a position to a fixed
+ * depth, which checks the move generator against known counts and measures its speed.
+ *
+ * Usage:
+ * java Perft "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1" 5
+ *     prints the node count below each root move (divide), the total and nodes/second.
+ * java Perft --suite
+ *     runs the standard positions below and exits with status 1 if any count is wrong. Also
+ *     prints the size of the magic attack tables and how long they took to build.
+ */
+public class Perft {
+
+    /**
+     * Standard perft positions and their known node counts for depth 1, 2, 3...
+     * Source: https://www.chessprogramming.org/Perft_Results
+     */
+    private static final String[] SUITE_FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"};
+    private static final long[][] SUITE_COUNTS = {
+            {20, 400, 8902, 197281, 4865609},
+            {48, 2039, 97862, 4085603},
+            {14, 191, 2812, 43238, 674624, 11030083},
+            {6, 264, 9467, 422333, 15833292},
+            {6, 264, 9467, 422333, 15833292},
+            {44, 1486, 62379, 2103487},
+            {46, 2079, 89890, 3894594}};
+
+    public static void main(String[] args) {
+        if (args.length == 1 && args[0].equals("--suite")) {
+            System.exit(runSuite() ? 0 : 1);
+        } else if (args.length == 2 && Integer.parseInt(args[1]) >= 1) {
+            // Divide splits the count over the root moves, so it needs at least one ply
+            divide(new Position(args[0]), Integer.parseInt(args[1]));
+        } else {
+            System.out.println("Usage: java Perft \"<fen>\" <depth of 1 or more>");
+            System.out.println("       java Perft --suite");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Returns the number of leaf nodes depth plies below the position.
+     */
+    public static long perft(Position position, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        return perft(position, depth, new int[depth + 1][MoveGenerator.MAX_MOVES]);
+    }
+
+    /**
+     * Counts leaf nodes using one preallocated move array per ply. The last ply is counted in bulk
+     * instead of being played.
+     */
+    private static long perft(Position position, int depth, int[][] moves) {
+        int count = MoveGenerator.generateLegalMoves(position, moves[depth]);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[depth][i];
+            position.makeMove(move);
+            nodes += perft(position, depth - 1, moves);
+            position.unmakeMove(move);
+        }
+        return nodes;
+    }
+
+    /**
+     * Prints the node count below each root move, then the total and the throughput.
+     */
+    private static void divide(Position position, int depth) {
+        int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegalMoves(position, rootMoves);
+        int[][] moves = new int[Math.max(depth, 1)][MoveGenerator.MAX_MOVES];
+        long start = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            long nodes = 1;
+            if (depth > 1) {
+                position.makeMove(rootMoves[i]);
+                nodes = perft(position, depth - 1, moves);
+                position.unmakeMove(rootMoves[i]);
+            }
+            total += nodes;
+            System.out.println(Move.toString(rootMoves[i]) + ": " + nodes);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println();
+        System.out.println("Moves: " + count);
+        System.out.println("Nodes: " + total);
+        printThroughput(total, elapsed);
+    }
+
+    /**
+     * Runs every suite position to every depth with a known count. Returns whether all counts
+     * matched.
+     */
+    private static boolean runSuite() {
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalTime = 0;
+        for (int i = 0; i < SUITE_FENS.length; i++) {
+            System.out.println(SUITE_FENS[i]);
+            for (int depth = 1; depth <= SUITE_COUNTS[i].length; depth++) {
+                Position position = new Position(SUITE_FENS[i]);
+                long start = System.nanoTime();
+                long nodes = perft(position, depth);
+                long elapsed = System.nanoTime() - start;
+                totalNodes += nodes;
+                totalTime += elapsed;
+                long expected = SUITE_COUNTS[i][depth - 1];
+                boolean correct = nodes == expected;
+                passed &= correct;
+                System.out.println("  depth " + depth + ": " + nodes
+                        + (correct ? " ok" : " FAILED, expected " + expected));
+            }
+        }
+        System.out.println();
+        System.out.println(passed ? "All perft counts match." : "PERFT MISMATCH");
+        System.out.println("Nodes: " + totalNodes);
+        printThroughput(totalNodes, totalTime);
+        System.out.printf("Magic tables: %d bytes, built in %.3f ms%n", Bitboards.magicTableBytes(),
+                Bitboards.MAGIC_INIT_NANOS / 1e6);
+        return passed;
+    }
+
+    /**
+     * Prints the elapsed time and nodes/second.
+     */
+    private static void printThroughput(long nodes, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("Time: %.3f s%n", seconds);
+        System.out.printf("Nodes/second: %.0f%n", nodes / Math.max(seconds, 1e-9));
+    }
+}
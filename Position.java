@@ -0,0 +1,765 @@
+import java.util.Arrays;
+
+/**
+ * The Position class is a pure-data snapshot of a chess game: which piece is on each square, whose
+ * turn it is, castling rights, en passant squares and the move clocks. It does not use any Swing or
+ * AWT classes, so the rules in Board can be evaluated without a GUI.
+ *
+ * Moves are applied with makeMove and taken back with unmakeMove. Each makeMove pushes a small
+ * undo record onto an internal stack instead of copying the board. Every change to the board
+ * also updates the position's Zobrist key, so getKey identifies a position without comparing
+ * boards.
+ */
+public class Position {
+
+    /**
+     * Side indices used by the bitboards.
+     */
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    /**
+     * Piece type indices used by the bitboards.
+     */
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    /**
+     * Pieces are coded as side * 6 + type, the index of their bitboard, so a piece's side is
+     * piece / 6 and its type piece % 6. An empty square holds EMPTY.
+     */
+    public static final int EMPTY = -1;
+
+    /**
+     * FEN letters of each piece code.
+     */
+    public static final String PIECE_LETTERS = "PNBRQKpnbrqk";
+
+    /**
+     * Castling rights bits, one per FEN castling letter.
+     */
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    /**
+     * FEN letters of the castling rights bits, in bit order.
+     */
+    private static final String CASTLE_LETTERS = "KQkq";
+
+    /**
+     * Material signature bits of the pawns, rooks and queens of both sides.
+     */
+    private static final long MATING_MATERIAL = (15L << 4 * PAWN) | (15L << 4 * ROOK)
+            | (15L << 4 * QUEEN) | (15L << 4 * (6 + PAWN)) | (15L << 4 * (6 + ROOK))
+            | (15L << 4 * (6 + QUEEN));
+
+    /**
+     * Castling rights that survive a move touching each square. Moving from or capturing on a
+     * king or rook home square removes the matching rights.
+     */
+    private static final int[] CASTLE_KEEP = new int[64];
+    static {
+        for (int square = 0; square < 64; square++) {
+            CASTLE_KEEP[square] = 15;
+        }
+        CASTLE_KEEP[56] &= ~WHITE_QUEENSIDE;
+        CASTLE_KEEP[63] &= ~WHITE_KINGSIDE;
+        CASTLE_KEEP[60] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLE_KEEP[0] &= ~BLACK_QUEENSIDE;
+        CASTLE_KEEP[7] &= ~BLACK_KINGSIDE;
+        CASTLE_KEEP[4] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+    }
+
+    /**
+     * Piece on each square, indexed by row * 8 + column. Holds the piece code (side * 6 + type)
+     * or EMPTY.
+     */
+    private final byte[] pieces = new byte[64];
+
+    /**
+     * Square of each side's king, or -1 if the side has no king. Set whenever a king is put on a
+     * square; kings are never captured, so one is only ever removed to be put back elsewhere.
+     */
+    private final int[] kingSquares = {-1, -1};
+
+    /**
+     * Occupancy of each piece type, indexed by side * 6 + type. Bit row * 8 + column is set when
+     * that piece stands on the square.
+     */
+    private final long[] bitboards = new long[12];
+
+    /**
+     * Occupancy of each side.
+     */
+    private final long[] occupancy = new long[2];
+
+    /**
+     * Whose turn it is. WHITE or BLACK
+     */
+    private int side;
+
+    /**
+     * Who can castle, stored as the castling rights bits corresponding to FEN notation for castling.
+     */
+    private int canCastle;
+
+    /**
+     * En passantable pawn positions, as a bitboard.
+     */
+    private long passant;
+
+    /**
+     * Halfmove clock... if this is ever 100 the game ends in a draw
+     */
+    private int halfmoves;
+
+    /**
+     * Fullmove clock... number of moves made by black
+     */
+    private int fullmoves;
+
+    /**
+     * Material signature: the number of pieces of each bitboard index, four bits per index, so
+     * piece index i is counted in bits 4i to 4i+3. Positions with the same pieces on different
+     * squares share a signature.
+     */
+    private long material;
+
+    /**
+     * Zobrist key of the position, kept up to date by every change to the board.
+     */
+    private long key;
+
+    /**
+     * Sums of the Evaluation middlegame and endgame values of every piece on the board, from
+     * white's point of view, and the game phase, kept up to date by every change to the board.
+     */
+    private int middlegame;
+    private int endgame;
+    private int phase;
+
+    /**
+     * Zobrist key of the pawns alone, for the pawn structure cache of the evaluation.
+     */
+    private long pawnKey;
+
+    /**
+     * Attack maps, kept up to date by every change to the board. attackCounts[side][square] is
+     * how many of the side's pieces attack the square and attacked[side] has a bit for every
+     * square with a non-zero count. attacksFrom holds the squares the piece on each square
+     * attacks, so a rook, bishop or queen whose line is opened or closed can be given its new
+     * squares without recomputing the others.
+     */
+    private final byte[][] attackCounts = new byte[2][64];
+    private final long[] attacked = new long[2];
+    private final long[] attacksFrom = new long[64];
+
+    /**
+     * Pieces giving check to each side's king and each side's pieces pinned against its king,
+     * worked out when first asked for. Bit side of checkInfo marks checkers[side] as current and
+     * bit 2 + side pinned[side]. Every change to the board clears checkInfo, so the captures and
+     * the quiet moves the move generator produces for one position share a single computation.
+     */
+    private final long[] checkers = new long[2];
+    private final long[] pinned = new long[2];
+    private int checkInfo;
+
+    /**
+     * Undo records of the moves made so far, one per ply. Each record packs the captured piece,
+     * the castling rights and the halfmove clock.
+     */
+    private long[] undo = new long[64];
+
+    /**
+     * En passant squares before each move made so far.
+     */
+    private long[] passantUndo = new long[64];
+
+    /**
+     * Zobrist keys before each move made so far.
+     */
+    private long[] keyHistory = new long[64];
+
+    /**
+     * Number of moves made that can still be unmade.
+     */
+    private int ply;
+
+    /**
+     * Construct a position given a FEN.
+     * Precondition: fen must be a legal FEN.
+     *
+     * E.g. rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+     * E.g. rnbqkbnr/pppppppp/8/8/3R/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+     *
+     * Lowercase letters denote black pieces. Ranks that are cut short are filled with empty
+     * squares.
+     */
+    public Position(String fen) {
+        String[] fields = fen.split(" ");
+        Arrays.fill(pieces, (byte) EMPTY);
+        // First Field: pieces and their positions "3R"
+        String[] ranks = fields[0].split("/");
+        for (int row = 0; row < 8; row++) {
+            int column = 0;
+            for (int j = 0; j < ranks[row].length(); j++) { //j = current index along rank entry
+                char symbol = ranks[row].charAt(j);
+                if (Character.isDigit(symbol)) {
+                    column += symbol - '0';
+                } else {
+                    put(row * 8 + column, PIECE_LETTERS.indexOf(symbol));
+                    column++;
+                }
+            }
+        }
+        // Second field: turn
+        side = fields[1].equals("w") ? WHITE : BLACK;
+        // Third field: castling
+        if (fields[2].charAt(0) != '-') {
+            for (int i = 0; i < fields[2].length(); i++) {
+                canCastle |= castleBit(fields[2].substring(i, i + 1));
+            }
+        }
+        // Fourth field: en passantables
+        if (fields[3].charAt(0) != '-') {
+            for (int i = 0; i < fields[3].length(); i = i + 2) {
+                String currentPos = fields[3].substring(i, i + 2);
+                int col = currentPos.charAt(0) - 97;
+                int row = 8 - (currentPos.charAt(1) - 48);
+                passant |= 1L << (row * 8 + col);
+            }
+        }
+        // Fifth field: halfmoves
+        halfmoves = Integer.parseInt(fields[4]);
+        // Sixth field: fullmoves
+        fullmoves = Integer.parseInt(fields[5]);
+        key = computeKey();
+    }
+
+    /**
+     * Construct a copy of another position, including the moves that can be unmade and the keys
+     * used to detect repetitions.
+     */
+    public Position(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, 64);
+        System.arraycopy(other.kingSquares, 0, kingSquares, 0, 2);
+        System.arraycopy(other.bitboards, 0, bitboards, 0, 12);
+        System.arraycopy(other.occupancy, 0, occupancy, 0, 2);
+        side = other.side;
+        canCastle = other.canCastle;
+        passant = other.passant;
+        halfmoves = other.halfmoves;
+        fullmoves = other.fullmoves;
+        material = other.material;
+        key = other.key;
+        middlegame = other.middlegame;
+        endgame = other.endgame;
+        phase = other.phase;
+        pawnKey = other.pawnKey;
+        System.arraycopy(other.attackCounts[WHITE], 0, attackCounts[WHITE], 0, 64);
+        System.arraycopy(other.attackCounts[BLACK], 0, attackCounts[BLACK], 0, 64);
+        System.arraycopy(other.attacked, 0, attacked, 0, 2);
+        System.arraycopy(other.attacksFrom, 0, attacksFrom, 0, 64);
+        undo = other.undo.clone();
+        passantUndo = other.passantUndo.clone();
+        keyHistory = other.keyHistory.clone();
+        ply = other.ply;
+    }
+
+    /**
+     * Returns the castling rights bit of a FEN castling letter.
+     */
+    private static int castleBit(String type) {
+        return 1 << CASTLE_LETTERS.indexOf(type);
+    }
+
+    /**
+     * Returns the code (side * 6 + type) of the piece on a square, or EMPTY.
+     */
+    public int pieceAt(int square) {
+        return pieces[square];
+    }
+
+    /**
+     * Puts a piece on an empty square and keeps the bitboards in step with it.
+     */
+    private void put(int square, int piece) {
+        long bit = 1L << square;
+        pieces[square] = (byte) piece;
+        checkInfo = 0;
+        bitboards[piece] |= bit;
+        occupancy[piece / 6] |= bit;
+        long occupied = occupancy[WHITE] | occupancy[BLACK];
+        retargetSliders(square, occupied);
+        setAttacks(square, Bitboards.attacks(piece, square, occupied));
+        material += 1L << 4 * piece;
+        key ^= Zobrist.PIECES[piece][square];
+        middlegame += Evaluation.MIDDLEGAME[piece][square];
+        endgame += Evaluation.ENDGAME[piece][square];
+        phase += Evaluation.PHASE_WEIGHTS[piece % 6];
+        if (piece % 6 == PAWN) {
+            pawnKey ^= Zobrist.PIECES[piece][square];
+        } else if (piece % 6 == KING) {
+            kingSquares[piece / 6] = square;
+        }
+    }
+
+    /**
+     * Empties a square and keeps the bitboards in step with it.
+     */
+    private void remove(int square) {
+        int piece = pieces[square];
+        if (piece >= 0) {
+            long bit = 1L << square;
+            bitboards[piece] &= ~bit;
+            occupancy[piece / 6] &= ~bit;
+            setAttacks(square, 0);
+            retargetSliders(square, occupancy[WHITE] | occupancy[BLACK]);
+            material -= 1L << 4 * piece;
+            key ^= Zobrist.PIECES[piece][square];
+            middlegame -= Evaluation.MIDDLEGAME[piece][square];
+            endgame -= Evaluation.ENDGAME[piece][square];
+            phase -= Evaluation.PHASE_WEIGHTS[piece % 6];
+            if (piece % 6 == PAWN) {
+                pawnKey ^= Zobrist.PIECES[piece][square];
+            }
+        }
+        pieces[square] = EMPTY;
+        checkInfo = 0;
+    }
+
+    /**
+     * Gives the rooks, bishops and queens whose lines run through a square that was just filled
+     * or emptied the squares they attack now.
+     */
+    private void retargetSliders(int square, long occupied) {
+        long queens = bitboards[QUEEN] | bitboards[6 + QUEEN];
+        long sliders = (Bitboards.bishopAttacks(square, occupied) & (bitboards[BISHOP] | bitboards[6 + BISHOP] | queens))
+                | (Bitboards.rookAttacks(square, occupied) & (bitboards[ROOK] | bitboards[6 + ROOK] | queens));
+        while (sliders != 0) {
+            int slider = Long.numberOfTrailingZeros(sliders);
+            sliders &= sliders - 1;
+            setAttacks(slider, Bitboards.attacks(pieces[slider], slider, occupied));
+        }
+    }
+
+    /**
+     * Replaces the squares attacked by the piece on a square, or by nothing if targets is 0, and
+     * updates the attack counts of its side by the difference.
+     */
+    private void setAttacks(int square, long targets) {
+        long before = attacksFrom[square];
+        if (before == targets) {
+            return;
+        }
+        attacksFrom[square] = targets;
+        int piece = pieces[square];
+        byte[] counts = attackCounts[piece / 6];
+        long lost = before & ~targets;
+        while (lost != 0) {
+            int target = Long.numberOfTrailingZeros(lost);
+            lost &= lost - 1;
+            if (--counts[target] == 0) {
+                attacked[piece / 6] &= ~(1L << target);
+            }
+        }
+        long gained = targets & ~before;
+        while (gained != 0) {
+            int target = Long.numberOfTrailingZeros(gained);
+            gained &= gained - 1;
+            counts[target]++;
+        }
+        attacked[piece / 6] |= targets;
+    }
+
+    /**
+     * Moves the piece on one square to an empty square.
+     */
+    private void relocate(int from, int to) {
+        int piece = pieces[from];
+        remove(from);
+        put(to, piece);
+    }
+
+    /**
+     * Plays a legal move, as produced by the MoveGenerator, for the side to move. Handles
+     * captures, castling, en passant, promotion, castling rights and both clocks, and records what
+     * unmakeMove needs to take the move back.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int us = side;
+        int captureSquare = to;
+        if (flag == Move.EN_PASSANT) {
+            captureSquare = us == WHITE ? to + 8 : to - 8;
+        }
+        int captured = pieces[captureSquare];
+
+        if (ply == undo.length) {
+            undo = Arrays.copyOf(undo, ply * 2);
+            passantUndo = Arrays.copyOf(passantUndo, ply * 2);
+            keyHistory = Arrays.copyOf(keyHistory, ply * 2);
+        }
+        undo[ply] = (captured + 1) | (canCastle << 4) | ((long) halfmoves << 8);
+        passantUndo[ply] = passant;
+        keyHistory[ply] = key;
+        ply++;
+
+        // The pieces update the key as they move, the rest of the state is swapped here
+        key ^= Zobrist.CASTLING[canCastle] ^ Zobrist.passantKey(passant, us, bitboards[us * 6 + PAWN]);
+        passant = 0;
+        halfmoves++;
+        if (captured >= 0) {
+            remove(captureSquare);
+            halfmoves = 0;
+        }
+        if (pieces[from] == us * 6 + PAWN) {
+            halfmoves = 0;
+        }
+        relocate(from, to);
+        if (flag == Move.PROMOTION) {
+            remove(to);
+            put(to, us * 6 + Move.promotion(move));
+        } else if (flag == Move.CASTLE) {
+            if (to > from) { // Kingside
+                relocate(to + 1, to - 1);
+            } else { // Queenside
+                relocate(to - 2, to + 1);
+            }
+        } else if (flag == Move.DOUBLE_PUSH) {
+            passant = 1L << ((from + to) / 2);
+        }
+        canCastle &= CASTLE_KEEP[from] & CASTLE_KEEP[to];
+        if (us == BLACK) {
+            fullmoves++;
+        }
+        side = us ^ 1;
+        key ^= Zobrist.CASTLING[canCastle] ^ Zobrist.passantKey(passant, side, bitboards[side * 6 + PAWN])
+                ^ Zobrist.BLACK_TO_MOVE;
+    }
+
+    /**
+     * Takes back the last move played with makeMove. The move passed in must be that move.
+     */
+    public void unmakeMove(int move) {
+        ply--;
+        long record = undo[ply];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int us = side ^ 1;
+        side = us;
+        if (us == BLACK) {
+            fullmoves--;
+        }
+
+        if (flag == Move.CASTLE) {
+            if (to > from) { // Kingside
+                relocate(to - 1, to + 1);
+            } else { // Queenside
+                relocate(to + 1, to - 2);
+            }
+        } else if (flag == Move.PROMOTION) {
+            remove(to);
+            put(to, us * 6 + PAWN);
+        }
+        relocate(to, from);
+
+        int captured = (int) (record & 15) - 1;
+        if (captured >= 0) {
+            int captureSquare = to;
+            if (flag == Move.EN_PASSANT) {
+                captureSquare = us == WHITE ? to + 8 : to - 8;
+            }
+            put(captureSquare, captured);
+        }
+        canCastle = (int) (record >>> 4) & 15;
+        halfmoves = (int) (record >>> 8) & 0xFFFF;
+        passant = passantUndo[ply];
+        key = keyHistory[ply];
+    }
+
+    /**
+     * Passes the turn to the other side without moving, for the search's null move pruning. The
+     * en passant square goes and the halfmove clock restarts, so positions before the null move
+     * never count as repetitions of the ones after it.
+     */
+    public void makeNullMove() {
+        if (ply == undo.length) {
+            undo = Arrays.copyOf(undo, ply * 2);
+            passantUndo = Arrays.copyOf(passantUndo, ply * 2);
+            keyHistory = Arrays.copyOf(keyHistory, ply * 2);
+        }
+        undo[ply] = (long) halfmoves << 8;
+        passantUndo[ply] = passant;
+        keyHistory[ply] = key;
+        ply++;
+        key ^= Zobrist.passantKey(passant, side, bitboards[side * 6 + PAWN]) ^ Zobrist.BLACK_TO_MOVE;
+        passant = 0;
+        halfmoves = 0;
+        side ^= 1;
+    }
+
+    /**
+     * Takes back the last null move played with makeNullMove.
+     */
+    public void unmakeNullMove() {
+        ply--;
+        side ^= 1;
+        halfmoves = (int) (undo[ply] >>> 8) & 0xFFFF;
+        passant = passantUndo[ply];
+        key = keyHistory[ply];
+    }
+
+    /**
+     * Returns the pieces giving check to the given side's king.
+     */
+    public long getCheckers(int side) {
+        if ((checkInfo & (1 << side)) == 0) {
+            int king = kingSquares[side];
+            checkers[side] = king < 0 || attackCounts[side ^ 1][king] == 0 ? 0
+                    : MoveGenerator.attackersTo(this, king, getOccupancy()) & occupancy[side ^ 1];
+            checkInfo |= 1 << side;
+        }
+        return checkers[side];
+    }
+
+    /**
+     * Returns how many pieces give check to the given side's king.
+     */
+    public int getCheckCount(int side) {
+        int king = kingSquares[side];
+        return king < 0 ? 0 : attackCounts[side ^ 1][king];
+    }
+
+    /**
+     * Returns whether the given side attacks a square.
+     */
+    public boolean isAttacked(int square, int bySide) {
+        return (attacked[bySide] & (1L << square)) != 0;
+    }
+
+    /**
+     * Returns how many of the given side's pieces attack a square.
+     */
+    public int getAttackerCount(int square, int bySide) {
+        return attackCounts[bySide][square];
+    }
+
+    /**
+     * Returns every square the given side attacks.
+     */
+    public long getAttacked(int side) {
+        return attacked[side];
+    }
+
+    /**
+     * Returns the given side's pieces that are pinned against their king.
+     */
+    public long getPinned(int side) {
+        if ((checkInfo & (4 << side)) == 0) {
+            pinned[side] = MoveGenerator.pinnedPieces(this, side);
+            checkInfo |= 4 << side;
+        }
+        return pinned[side];
+    }
+
+    /**
+     * Returns the sum of the middlegame values of every piece on the board, from white's point of
+     * view.
+     */
+    public int getMiddlegameScore() {
+        return middlegame;
+    }
+
+    /**
+     * Returns the sum of the endgame values of every piece on the board, from white's point of
+     * view.
+     */
+    public int getEndgameScore() {
+        return endgame;
+    }
+
+    /**
+     * Returns the game phase: the Evaluation.PHASE_WEIGHTS of every piece on the board added up.
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the Zobrist key of the pawns alone: the same for every position with the same pawns
+     * on the same squares, whatever the other pieces do.
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Returns the Zobrist key of the position.
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Returns how many times the current position occurred earlier in the game. Only the keys
+     * since the last capture or pawn move are scanned, as no earlier position can come back.
+     */
+    public int repetitions() {
+        int count = 0;
+        int limit = Math.min(halfmoves, ply);
+        // The same side must be to move, and it takes at least two moves each to return
+        for (int back = 4; back <= limit; back += 2) {
+            if (keyHistory[ply - back] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether the current position has occurred three times.
+     */
+    public boolean isThreefoldRepetition() {
+        return repetitions() >= 2;
+    }
+
+    /**
+     * Returns whether fifty moves by each side have passed without a capture or pawn move.
+     */
+    public boolean isFiftyMoveDraw() {
+        return halfmoves >= 100;
+    }
+
+    /**
+     * Returns whether seventy-five moves by each side have passed without a capture or pawn move,
+     * which ends the game even if nobody claims the draw.
+     */
+    public boolean isSeventyFiveMoveDraw() {
+        return halfmoves >= 150;
+    }
+
+    /**
+     * Returns the material signature of the position.
+     */
+    public long getMaterial() {
+        return material;
+    }
+
+    /**
+     * Returns how many pieces of one type a side has.
+     */
+    public int getPieceCount(int side, int type) {
+        return (int) (material >>> 4 * (side * 6 + type)) & 15;
+    }
+
+    /**
+     * Returns whether neither side has enough material left to checkmate: bare kings, a single
+     * knight or bishop, or only bishops that all stand on squares of the same color.
+     */
+    public boolean isInsufficientMaterial() {
+        if ((material & MATING_MATERIAL) != 0) {
+            return false;
+        }
+        int knights = getPieceCount(WHITE, KNIGHT) + getPieceCount(BLACK, KNIGHT);
+        int bishops = getPieceCount(WHITE, BISHOP) + getPieceCount(BLACK, BISHOP);
+        if (knights + bishops <= 1) {
+            return true;
+        }
+        if (knights > 0) {
+            return false;
+        }
+        long allBishops = bitboards[BISHOP] | bitboards[6 + BISHOP];
+        return (allBishops & Bitboards.LIGHT_SQUARES) == 0 || (allBishops & ~Bitboards.LIGHT_SQUARES) == 0;
+    }
+
+    /**
+     * Computes the Zobrist key of the position from scratch. getKey returns the same value
+     * without the work.
+     */
+    public long computeKey() {
+        long fresh = 0;
+        long occupied = occupancy[WHITE] | occupancy[BLACK];
+        while (occupied != 0) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            fresh ^= Zobrist.PIECES[pieces[square]][square];
+        }
+        if (side == BLACK) {
+            fresh ^= Zobrist.BLACK_TO_MOVE;
+        }
+        return fresh ^ Zobrist.CASTLING[canCastle] ^ Zobrist.passantKey(passant, side, bitboards[side * 6 + PAWN]);
+    }
+
+    /**
+     * Returns the side to move, WHITE or BLACK.
+     */
+    public int getSideToMove() {
+        return side;
+    }
+
+    /**
+     * Returns the bitboard of one side's pieces of one type.
+     */
+    public long getBitboard(int side, int type) {
+        return bitboards[side * 6 + type];
+    }
+
+    /**
+     * Returns the bitboard of all of one side's pieces.
+     */
+    public long getOccupancy(int side) {
+        return occupancy[side];
+    }
+
+    /**
+     * Returns the square of the given side's king, or -1 if it has no king.
+     */
+    public int getKingSquare(int side) {
+        return kingSquares[side];
+    }
+
+    /**
+     * Returns the bitboard of every occupied square.
+     */
+    public long getOccupancy() {
+        return occupancy[WHITE] | occupancy[BLACK];
+    }
+
+    /**
+     * Returns the castling rights as a combination of the castling rights bits.
+     */
+    public int getCastlingRights() {
+        return canCastle;
+    }
+
+    /**
+     * Returns the en passant target squares as a bitboard.
+     */
+    public long getPassant() {
+        return passant;
+    }
+
+    /**
+     * Returns the halfmove clock.
+     */
+    public int getHalfmoves() {
+        return halfmoves;
+    }
+
+    /**
+     * Returns the fullmove clock.
+     */
+    public int getFullmoves() {
+        return fullmoves;
+    }
+}
@@ -0,0 +1,710 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * The Search class looks for the best move in a Position with a negamax alpha-beta search. It
+ * deepens one ply at a time until a depth or node budget runs out, and keeps the best move of the
+ * last depth it finished. At depth 0 a quiescence search plays on the captures and promotions
+ * that do not lose material, so that positions are not scored in the middle of an exchange.
+ *
+ * Moves after the first are searched with a null window (principal variation search). In those
+ * nodes, off the principal variation, null move pruning, late move reductions and futility
+ * pruning cut the tree down; each of them can be switched off.
+ *
+ * Scores are in centipawns from the point of view of the side to move. A side that is mated n
+ * plies from the root scores -(MATE - n).
+ */
+public class Search {
+
+    /**
+     * Bound larger than any score.
+     */
+    public static final int INFINITY = 32000;
+
+    /**
+     * Score of giving mate at the root.
+     */
+    public static final int MATE = 31000;
+
+    /**
+     * Deepest ply the search can reach.
+     */
+    public static final int MAX_PLY = 128;
+
+    /**
+     * Scores at least this large in absolute value are mate scores.
+     */
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+
+    /**
+     * Move returned when there is nothing to play. No real move goes from a8 to a8.
+     */
+    public static final int NO_MOVE = 0;
+
+    /**
+     * Size of the transposition table a Search creates for itself.
+     */
+    public static final int DEFAULT_TABLE_MB = 16;
+
+    /**
+     * Largest absolute history score.
+     */
+    private static final int HISTORY_MAX = 1 << 14;
+
+    /**
+     * Deepest remaining depth at which futility and reverse futility pruning apply, and their
+     * margin per ply of remaining depth.
+     */
+    private static final int FUTILITY_DEPTH = 3;
+    private static final int FUTILITY_MARGIN = 120;
+
+    /**
+     * Shallowest remaining depth at which the null move is tried.
+     */
+    private static final int NULL_MOVE_DEPTH = 3;
+
+    /**
+     * Late move reductions, indexed [remaining depth][number of moves searched before], growing
+     * with the logarithm of both.
+     */
+    private static final int[][] REDUCTIONS = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    static {
+        for (int depth = 1; depth < MAX_PLY; depth++) {
+            for (int searched = 1; searched < MoveGenerator.MAX_MOVES; searched++) {
+                REDUCTIONS[depth][searched] = (int) (0.75 + Math.log(depth) * Math.log(searched) / 2.25);
+            }
+        }
+    }
+
+    /**
+     * Hands out the moves of each ply in order.
+     */
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+
+    /**
+     * Two quiet moves per ply that last caused a beta cutoff there, most recent first.
+     */
+    private final int[][] killers = new int[MAX_PLY][2];
+
+    /**
+     * Quiet move that last refuted each move of the opponent, indexed [piece][to] of that move.
+     */
+    private final int[][] counterMoves = new int[12][64];
+
+    /**
+     * How often each quiet move caused a cutoff, less how often it failed to, weighted by depth.
+     * Indexed [side][from + 64 * to], the low 12 bits of the move, and kept between searches,
+     * halved at the start of each.
+     */
+    private final int[][] history = new int[2][64 * 64];
+
+    /**
+     * Move played at each ply on the way to the current node.
+     */
+    private final int[] playedMoves = new int[MAX_PLY];
+
+    /**
+     * Quiet moves searched so far at each ply, which lose history when another move cuts off.
+     */
+    private final int[][] quietsSearched = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+
+    /**
+     * Triangular principal variation table: pv[ply] holds the best line found from ply onwards,
+     * which ends at pvLength[ply].
+     */
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    /**
+     * Scores captures for ordering and pruning.
+     */
+    private final StaticExchange exchange = new StaticExchange();
+
+    /**
+     * Pawn structure scores of this search's positions. Kept between searches, as the pawns of
+     * the next move's positions are mostly the same.
+     */
+    private final PawnTable pawnTable = new PawnTable(PawnTable.DEFAULT_ENTRIES);
+
+    /**
+     * Results of earlier searches, possibly shared with other Search instances.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * Where to print a line of information after each finished depth, or null for silence.
+     */
+    private PrintStream output;
+
+    private Position position;
+    private long nodes;
+    private long nodeLimit;
+    private boolean stopped;
+
+    /**
+     * Set by another thread to make the search return as soon as it has a move.
+     */
+    private volatile boolean stopRequested;
+
+    /**
+     * Extra plies added to every depth of the iterative deepening, so that helper threads of a
+     * parallel search work on different depths than the main thread.
+     */
+    private int depthOffset;
+
+    /**
+     * Which selective pruning the search does. All of them are on unless switched off, which is
+     * mostly useful to measure what each of them is worth.
+     */
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    private boolean futilityPruning = true;
+
+    /**
+     * Time limits of the current search, or null if only depth and nodes limit it.
+     */
+    private TimeManager timer;
+    private long tableProbes;
+    private long tableHits;
+
+    /**
+     * Result of the last depth that finished.
+     */
+    private int bestMove = NO_MOVE;
+    private int score;
+    private int completedDepth;
+    private int[] principalVariation = new int[0];
+
+    /**
+     * Creates a search with its own transposition table of DEFAULT_TABLE_MB megabytes.
+     */
+    public Search() {
+        this(new HeapTranspositionTable(DEFAULT_TABLE_MB));
+    }
+
+    /**
+     * Creates a search that stores its results in the given transposition table.
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            pickers[ply] = new MovePicker(exchange, history);
+        }
+    }
+
+    /**
+     * Sets where to print information about each finished depth. Null turns it off.
+     */
+    public void setOutput(PrintStream output) {
+        this.output = output;
+    }
+
+    /**
+     * Sets how many plies deeper than usual each depth of the iterative deepening searches.
+     */
+    public void setDepthOffset(int depthOffset) {
+        this.depthOffset = depthOffset;
+    }
+
+    /**
+     * Switches null move pruning: skipping a move and searching shallower, to give up on positions
+     * that are good enough for the side to move even if it passes.
+     */
+    public void setNullMovePruning(boolean enabled) {
+        nullMovePruning = enabled;
+    }
+
+    /**
+     * Switches late move reductions: searching the quiet moves that come late in the move order
+     * less deeply, unless they turn out better than expected.
+     */
+    public void setLateMoveReductions(boolean enabled) {
+        lateMoveReductions = enabled;
+    }
+
+    /**
+     * Switches futility and reverse futility pruning: near the horizon, skipping quiet moves when
+     * the static evaluation is far below alpha, and the whole node when it is far above beta.
+     */
+    public void setFutilityPruning(boolean enabled) {
+        futilityPruning = enabled;
+    }
+
+    /**
+     * Asks a running search, from another thread, to stop. It returns the best move of the last
+     * depth it finished, once it has finished at least one. The request stays until clearStop,
+     * so a search handed to another thread but not started yet still sees it.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Forgets an earlier stop request. Call it before handing the search to the thread that runs
+     * it, not from that thread, or a stop sent in between is lost.
+     */
+    public void clearStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Searches the position to at most maxDepth plies or about maxNodes nodes, whichever runs out
+     * first, and returns the best move found, or NO_MOVE if the side to move has no legal move.
+     * The first depth always finishes, so a move is found even with a tiny budget. The position is
+     * left as it was.
+     */
+    public int search(Position position, int maxDepth, long maxNodes) {
+        return search(position, maxDepth, maxNodes, null);
+    }
+
+    /**
+     * Same as search, but also stops when the timer's limits are reached: no new depth starts
+     * after the soft limit and the depth being searched is abandoned at the hard limit. A null
+     * timer sets no time limit.
+     */
+    public int search(Position position, int maxDepth, long maxNodes, TimeManager timer) {
+        table.newSearch();
+        return searchSharedTable(position, maxDepth, maxNodes, timer);
+    }
+
+    /**
+     * Same as search, but leaves the transposition table's generation alone. Used by searches
+     * that share a table whose generation the caller has already advanced.
+     */
+    public int searchSharedTable(Position position, int maxDepth, long maxNodes, TimeManager timer) {
+        this.position = position;
+        this.timer = timer;
+        nodes = 0;
+        nodeLimit = maxNodes;
+        stopped = false;
+        bestMove = NO_MOVE;
+        score = 0;
+        completedDepth = 0;
+        principalVariation = new int[0];
+        tableProbes = 0;
+        tableHits = 0;
+        pawnTable.resetStatistics();
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, NO_MOVE);
+        }
+        for (int[] sideHistory : history) {
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] /= 2;
+            }
+        }
+        long start = System.nanoTime();
+        long previousNodes = 0;
+        for (int depth = 1 + depthOffset; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+            int value = negamax(depth, -INFINITY, INFINITY, 0);
+            if (stopped) {
+                break;
+            }
+            completedDepth = depth;
+            score = value;
+            principalVariation = Arrays.copyOf(pv[0], pvLength[0]);
+            bestMove = principalVariation.length > 0 ? principalVariation[0] : NO_MOVE;
+            if (output != null) {
+                printInfo(depth, System.nanoTime() - start, nodes - previousNodes);
+            }
+            previousNodes = nodes;
+            // Nothing deeper can beat a forced mate that fits within this depth
+            if (bestMove == NO_MOVE || Math.abs(score) >= MATE - depth) {
+                break;
+            }
+            if (timer != null && timer.softLimitReached()) {
+                break;
+            }
+        }
+        table.addStatistics(tableProbes, tableHits);
+        return bestMove;
+    }
+
+    /**
+     * Returns the score of the position at the given remaining depth, within the window alpha to
+     * beta. Scores outside the window are only bounds.
+     */
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        pvLength[ply] = ply;
+        nodes++;
+        if (outOfBudget()) {
+            stopped = true;
+            return 0;
+        }
+        if (ply > 0 && (position.repetitions() > 0 || position.isFiftyMoveDraw()
+                || position.isInsufficientMaterial())) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(position, pawnTable);
+        }
+
+        long key = position.getKey();
+        tableProbes++;
+        long entry = table.probe(key);
+        int tableMove = NO_MOVE;
+        if (entry != 0) {
+            tableHits++;
+            tableMove = TranspositionTable.move(entry);
+            int tableScore = scoreFromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            // The root always searches, so that it has a best move and a principal variation
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth
+                    && (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && tableScore >= beta)
+                    || (bound == TranspositionTable.UPPER && tableScore <= alpha))) {
+                return tableScore;
+            }
+        }
+
+        int side = position.getSideToMove();
+        boolean inCheck = MoveGenerator.inCheck(position, side);
+        // Only nodes searched with a null window may be pruned, the principal variation never is
+        boolean pvNode = beta - alpha > 1;
+        int previous = ply > 0 ? playedMoves[ply - 1] : NO_MOVE;
+        boolean selective = !pvNode && !inCheck && ply > 0 && Math.abs(beta) < MATE_BOUND;
+        int staticEval = selective ? Evaluation.evaluate(position, pawnTable) : 0;
+
+        if (selective && futilityPruning && depth <= FUTILITY_DEPTH
+                && staticEval - FUTILITY_MARGIN * depth >= beta) {
+            return staticEval;
+        }
+        // No null move right after another one, and none without pieces, where passing could
+        // well be the best move there is
+        if (selective && nullMovePruning && depth >= NULL_MOVE_DEPTH && previous != NO_MOVE
+                && staticEval >= beta && hasPieces(side)) {
+            int reduction = 3 + depth / 6;
+            playedMoves[ply] = NO_MOVE;
+            position.makeNullMove();
+            int value = -negamax(depth - 1 - reduction, -beta, -beta + 1, ply + 1);
+            position.unmakeNullMove();
+            if (stopped) {
+                return 0;
+            }
+            if (value >= beta) {
+                // A mate found after passing is not a proof of one
+                return value >= MATE_BOUND ? beta : value;
+            }
+        }
+        boolean futile = selective && futilityPruning && depth <= FUTILITY_DEPTH
+                && staticEval + FUTILITY_MARGIN * depth <= alpha;
+
+        int counterMove = previous == NO_MOVE ? NO_MOVE
+                : counterMoves[Move.piece(previous)][Move.to(previous)];
+        MovePicker picker = pickers[ply];
+        picker.init(position, ply == 0 && bestMove != NO_MOVE ? bestMove : tableMove, killers[ply][0],
+                killers[ply][1], counterMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestHere = NO_MOVE;
+        int searched = 0;
+        int quiets = 0;
+        int move;
+        while ((move = picker.next()) != NO_MOVE) {
+            boolean quiet = Move.isQuiet(move);
+            boolean lateQuiet = picker.isLateQuiet();
+            playedMoves[ply] = move;
+            position.makeMove(move);
+            boolean givesCheck = MoveGenerator.inCheck(position, side ^ 1);
+            if (futile && quiet && searched > 0 && !givesCheck) {
+                position.unmakeMove(move);
+                continue;
+            }
+            int value;
+            if (searched == 0) {
+                value = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                // Principal variation search: the first move is expected to be the best, so the
+                // others only need to be shown no better with a null window. Late quiet moves
+                // get that shown at reduced depth first. A move that beats alpha is searched
+                // again deeper and with the full window.
+                int reduced = depth - 1;
+                if (lateMoveReductions && lateQuiet && depth >= 3 && searched >= 3 && !inCheck && !givesCheck) {
+                    reduced = Math.max(1, depth - 1 - REDUCTIONS[depth][searched]);
+                }
+                value = -negamax(reduced, -alpha - 1, -alpha, ply + 1);
+                if (value > alpha && reduced < depth - 1 && !stopped) {
+                    value = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1);
+                }
+                if (value > alpha && value < beta && !stopped) {
+                    value = -negamax(depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            position.unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+            searched++;
+            if (value > best) {
+                best = value;
+                bestHere = move;
+                if (value > alpha) {
+                    alpha = value;
+                    pv[ply][ply] = move;
+                    System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                    pvLength[ply] = pvLength[ply + 1];
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            rememberCutoff(move, previous, depth, ply, quiets);
+                        }
+                        break;
+                    }
+                }
+            }
+            if (quiet) {
+                quietsSearched[ply][quiets++] = move;
+            }
+        }
+        if (searched == 0) {
+            // Futility pruning always searches one move, so no move searched means no legal move
+            return inCheck ? -MATE + ply : 0;
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bound == TranspositionTable.UPPER ? NO_MOVE : bestHere, scoreToTable(best, ply),
+                depth, bound);
+        return best;
+    }
+
+    /**
+     * Returns the score of a position once the captures and promotions worth playing have been
+     * played out, within the window alpha to beta. The side to move may also stand pat on the
+     * static evaluation, unless it is in check, where every move is searched instead.
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        nodes++;
+        if (outOfBudget()) {
+            stopped = true;
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(position, pawnTable);
+        }
+        boolean inCheck = MoveGenerator.inCheck(position, position.getSideToMove());
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = Evaluation.evaluate(position, pawnTable);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+
+        MovePicker picker = pickers[ply];
+        if (inCheck) {
+            picker.init(position, NO_MOVE, NO_MOVE, NO_MOVE, NO_MOVE);
+        } else {
+            picker.initCaptures(position);
+        }
+        int move;
+        while ((move = picker.next()) != NO_MOVE) {
+            if (!inCheck && Move.flag(move) == Move.PROMOTION && Move.promotion(move) != Position.QUEEN) {
+                continue;
+            }
+            position.makeMove(move);
+            int value = -quiesce(-beta, -alpha, ply + 1);
+            position.unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+            if (value > best) {
+                best = value;
+                if (value > alpha) {
+                    alpha = value;
+                    pv[ply][ply] = move;
+                    System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                    pvLength[ply] = pvLength[ply + 1];
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (best == -INFINITY) {
+            // In check without a legal move
+            return -MATE + ply;
+        }
+        return best;
+    }
+
+    /**
+     * Returns whether a side has any piece other than pawns and its king. Without one, zugzwang is
+     * common enough that passing cannot be trusted to be worse than moving.
+     */
+    private boolean hasPieces(int side) {
+        for (int type = Position.KNIGHT; type <= Position.QUEEN; type++) {
+            if (position.getPieceCount(side, type) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the move ordering tables after a quiet move caused a beta cutoff: it becomes the
+     * ply's first killer and the countermove of the previous move, gains history and the quiet
+     * moves searched before it lose history.
+     */
+    private void rememberCutoff(int move, int previous, int depth, int ply, int quiets) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        if (previous != NO_MOVE) {
+            counterMoves[Move.piece(previous)][Move.to(previous)] = move;
+        }
+        int side = position.getSideToMove();
+        int bonus = Math.min(depth * depth, HISTORY_MAX);
+        addHistory(side, move, bonus);
+        for (int i = 0; i < quiets; i++) {
+            addHistory(side, quietsSearched[ply][i], -bonus);
+        }
+    }
+
+    /**
+     * Adds a bonus to a move's history score. Scores shrink towards 0 the closer they are to
+     * HISTORY_MAX, so they stay within it and recent results weigh more than old ones.
+     */
+    private void addHistory(int side, int move, int bonus) {
+        int[] sideHistory = history[side];
+        int i = move & 4095;
+        sideHistory[i] += bonus - sideHistory[i] * Math.abs(bonus) / HISTORY_MAX;
+    }
+
+    /**
+     * Returns whether the search has used up its nodes, been asked to stop or reached the hard
+     * time limit. The first depth always finishes. Stop requests and the clock are only looked at
+     * every 1024 nodes.
+     */
+    private boolean outOfBudget() {
+        return completedDepth > 0 && (nodes >= nodeLimit || ((nodes & 1023) == 0 && (stopRequested
+                || (timer != null && timer.hardLimitReached()))));
+    }
+
+    /**
+     * Converts a score to the form stored in the transposition table. Mate scores count plies
+     * from the root, the table counts them from the stored position, so that they stay right when
+     * the position is reached at another ply.
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        } else if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Converts a score read from the transposition table back to a score from the root.
+     */
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        } else if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Prints the result of a finished depth: score, nodes, speed, the effective branching factor
+     * against the previous depth and the principal variation.
+     */
+    private void printInfo(int depth, long nanos, long depthNodes) {
+        StringBuilder line = new StringBuilder("info depth " + depth);
+        line.append(" score ").append(scoreString(score));
+        line.append(" nodes ").append(nodes);
+        line.append(" time ").append(nanos / 1000000);
+        line.append(" nps ").append(nanos > 0 ? nodes * 1000000000L / nanos : 0);
+        long previous = nodes - depthNodes;
+        if (previous > 0) {
+            line.append(String.format(" ebf %.2f", (double) depthNodes / previous));
+        }
+        line.append(" pv");
+        for (int move : principalVariation) {
+            line.append(' ').append(Move.toString(move));
+        }
+        output.println(line);
+    }
+
+    /**
+     * Returns a score as "cp 35", or "mate 3" / "mate -2" counting moves rather than plies. A side
+     * that is already mated scores "mate 0".
+     */
+    public static String scoreString(int score) {
+        if (score >= MATE_BOUND) {
+            return "mate " + (MATE - score + 1) / 2;
+        } else if (score <= -MATE_BOUND) {
+            return "mate " + -((MATE + score) / 2);
+        }
+        return "cp " + score;
+    }
+
+    /**
+     * Returns the best move of the last finished depth.
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Returns the score of the last finished depth.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the last depth that finished.
+     */
+    public int getDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Returns the number of nodes visited by the last search.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns how many times the last search looked a position up in the transposition table.
+     */
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    /**
+     * Returns how many of the last search's lookups found an entry.
+     */
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    /**
+     * Returns the pawn structure cache of the search, whose statistics cover the last search.
+     */
+    public PawnTable getPawnTable() {
+        return pawnTable;
+    }
+
+    /**
+     * Returns the transposition table the search uses.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the best line of the last finished depth.
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+}
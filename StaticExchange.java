@@ -0,0 +1,93 @@
+/**
+ * The StaticExchange class works out what a capture wins or loses once every piece attacking its
+ * destination square has joined in, without making any moves. Both sides recapture with their
+ * least valuable attacker and may stop recapturing whenever that is better for them. Sliders
+ * behind a capturing piece join in as the pieces in front of them leave the square's attacker set.
+ *
+ * Pins are ignored, and a pawn recapturing on the last row is counted as a pawn. The king only
+ * recaptures when the other side has no attacker left.
+ *
+ * An instance keeps its own work buffer, so every search thread needs its own.
+ */
+public final class StaticExchange {
+
+    /**
+     * Most captures a sequence on one square can have: every piece but one king.
+     */
+    private static final int MAX_CAPTURES = 32;
+
+    /**
+     * Value the side to capture at each step of the sequence has gained so far, if it stops there.
+     */
+    private final int[] gains = new int[MAX_CAPTURES];
+
+    /**
+     * Returns the material the side to move wins, in centipawns, by playing the move and letting
+     * both sides go on capturing on its destination square. Negative if the move loses material,
+     * 0 for moves that capture nothing and cannot be taken back.
+     */
+    public int evaluate(Position position, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        if (flag == Move.CASTLE) {
+            return 0;
+        }
+        int side = position.getSideToMove();
+        long occupied = position.getOccupancy() ^ (1L << from);
+        int moving = Move.piece(move) % 6;
+        int gain = Move.isCapture(move) ? Evaluation.PIECE_VALUES[Move.captured(move) % 6] : 0;
+        if (flag == Move.EN_PASSANT) {
+            occupied ^= 1L << (side == Position.WHITE ? to + 8 : to - 8);
+        } else if (flag == Move.PROMOTION) {
+            moving = Move.promotion(move);
+            gain += Evaluation.PIECE_VALUES[moving] - Evaluation.PIECE_VALUES[Position.PAWN];
+        }
+        gains[0] = gain;
+
+        long diagonals = bothSides(position, Position.BISHOP) | bothSides(position, Position.QUEEN);
+        long straights = bothSides(position, Position.ROOK) | bothSides(position, Position.QUEEN);
+        long attackers = MoveGenerator.attackersTo(position, to, occupied) & occupied;
+        // Value of the piece standing on the square, which the next capture takes
+        int onSquare = Evaluation.PIECE_VALUES[moving];
+        int depth = 0;
+        side ^= 1;
+        while (depth + 1 < MAX_CAPTURES) {
+            long own = attackers & position.getOccupancy(side);
+            if (own == 0) {
+                break;
+            }
+            int type = Position.PAWN;
+            long piece = 0;
+            for (; type <= Position.KING; type++) {
+                piece = own & position.getBitboard(side, type);
+                if (piece != 0) {
+                    break;
+                }
+            }
+            if (type == Position.KING && (attackers & position.getOccupancy(side ^ 1)) != 0) {
+                break;
+            }
+            depth++;
+            gains[depth] = onSquare - gains[depth - 1];
+            onSquare = Evaluation.PIECE_VALUES[type];
+            occupied ^= piece & -piece;
+            attackers |= (Bitboards.bishopAttacks(to, occupied) & diagonals)
+                    | (Bitboards.rookAttacks(to, occupied) & straights);
+            attackers &= occupied;
+            side ^= 1;
+        }
+        while (depth > 0) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+            depth--;
+        }
+        return gains[0];
+    }
+
+    /**
+     * Returns the pieces of one type of both sides.
+     */
+    private static long bothSides(Position position, int type) {
+        return position.getBitboard(Position.WHITE, type) | position.getBitboard(Position.BLACK, type);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * The TimeManager decides how long the search may think about one move. It sets two deadlines,
+ * counted from when it is created:
+ * the soft limit, after which the search does not start another depth, since the next depth
+ * usually takes longer than all the previous ones together, and
+ * the hard limit, at which the search abandons the depth it is working on and plays the best move
+ * of the last depth it finished.
+ */
+public class TimeManager {
+
+    /**
+     * Time kept back from every move for the engine's caller to receive and send the move.
+     */
+    public static final long DEFAULT_OVERHEAD_MS = 30;
+
+    /**
+     * Moves still to play assumed when the clock gives no number, or a larger one.
+     */
+    private static final int HORIZON_MOVES = 30;
+
+    /**
+     * The soft limit is the target divided by SOFT_DIVISOR. A depth started just before the
+     * target would take several times longer than the ones before it, so stopping at half the
+     * target keeps the average move near the target.
+     */
+    private static final int SOFT_DIVISOR = 2;
+
+    /**
+     * The hard limit is at most HARD_MULTIPLE times the target, room for a depth that runs long
+     * without one move eating the time of the next few.
+     */
+    private static final int HARD_MULTIPLE = 3;
+
+    /**
+     * Quarters of the time left the hard limit may use, unless this is the last move before the
+     * time control, and quarters of the increment added to the target. The rest of the increment
+     * is a cushion against overhead the caller did not account for.
+     */
+    private static final int HARD_QUARTERS = 3;
+    private static final int INCREMENT_QUARTERS = 3;
+
+    private final long start = System.nanoTime();
+    private final long softNanos;
+    private final long hardNanos;
+
+    private TimeManager(long softMillis, long hardMillis) {
+        softNanos = Math.max(1, softMillis) * 1000000;
+        hardNanos = Math.max(1, hardMillis) * 1000000;
+    }
+
+    /**
+     * Returns a manager that thinks for exactly the given time, whatever the position.
+     */
+    public static TimeManager forMoveTime(long millis) {
+        return new TimeManager(millis, millis);
+    }
+
+    /**
+     * Returns a manager for a player with the given time left on the clock, increment per move
+     * and number of moves until the next time control (0 if there is none).
+     *
+     * Each move aims for an equal share of the time left over the moves to go plus three
+     * quarters of the increment. The soft limit is half that target. The hard limit allows three
+     * times the target, but never more than three quarters of the time left, unless this is the
+     * last move before the time control.
+     */
+    public static TimeManager forClock(long remaining, long increment, int movesToGo, long overhead) {
+        long available = Math.max(1, remaining - overhead);
+        int moves = movesToGo > 0 ? Math.min(movesToGo, HORIZON_MOVES) : HORIZON_MOVES;
+        long hard = moves == 1 ? available : available * HARD_QUARTERS / 4;
+        long target = Math.min(available / moves + increment * INCREMENT_QUARTERS / 4, hard);
+        hard = Math.min(hard, target * HARD_MULTIPLE);
+        return new TimeManager(target / SOFT_DIVISOR, hard);
+    }
+
+    /**
+     * Returns whether it is too late to start another depth.
+     */
+    public boolean softLimitReached() {
+        return System.nanoTime() - start >= softNanos;
+    }
+
+    /**
+     * Returns whether the search must stop now.
+     */
+    public boolean hardLimitReached() {
+        return System.nanoTime() - start >= hardNanos;
+    }
+
+    /**
+     * Returns the milliseconds passed since the manager was created.
+     */
+    public long elapsedMillis() {
+        return (System.nanoTime() - start) / 1000000;
+    }
+}
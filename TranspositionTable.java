@@ -0,0 +1,248 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The TranspositionTable remembers what the search found out about positions it has already
+ * searched, keyed by Zobrist key, so a position reached again by another move order does not have
+ * to be searched again.
+ *
+ * Each entry is two longs: the entry's data (best move, score, depth, bound and generation packed
+ * together) and the position's key XORed with that data. Readers and writers never lock. A reader
+ * that sees one long of one write and the other long of another write gets a key that does not
+ * match and treats the entry as a miss, so several search threads can share one table.
+ *
+ * Subclasses decide where the entries live: HeapTranspositionTable keeps them in a long array,
+ * OffHeapTranspositionTable outside the Java heap.
+ */
+public abstract class TranspositionTable {
+
+    /**
+     * Bound types. NONE marks an empty entry.
+     */
+    public static final int NONE = 0;
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    /**
+     * Bytes taken by one entry.
+     */
+    public static final int ENTRY_BYTES = 16;
+
+    /**
+     * Entry data layout: bits 0-25 move, 26-41 score, 42-49 depth, 50-51 bound, 52-59 generation.
+     */
+    private static final int SCORE_SHIFT = 26;
+    private static final int DEPTH_SHIFT = 42;
+    private static final int BOUND_SHIFT = 50;
+    private static final int GENERATION_SHIFT = 52;
+
+    /**
+     * Number of entries looked at to estimate the occupancy.
+     */
+    private static final int OCCUPANCY_SAMPLE = 1000;
+
+    /**
+     * Number of entries minus one. The number of entries is a power of two.
+     */
+    private long mask;
+
+    /**
+     * Generation of the current search. Entries from older searches are replaced first.
+     */
+    private int generation;
+
+    /**
+     * Probes and hits reported by the searches using the table.
+     */
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Returns a table of at most the given number of megabytes. Off heap tables are mapped from a
+     * file in hugePageDirectory, a hugetlbfs mount such as /dev/hugepages, when it is not null.
+     */
+    public static TranspositionTable create(int megabytes, boolean offHeap, String hugePageDirectory) {
+        if (offHeap) {
+            return new OffHeapTranspositionTable(megabytes, hugePageDirectory);
+        }
+        return new HeapTranspositionTable(megabytes);
+    }
+
+    /**
+     * Replaces the table with an empty one of at most the given number of megabytes. The number
+     * of entries is rounded down to a power of two, and to at most maxEntries.
+     */
+    public void resize(int megabytes) {
+        long wanted = Math.max(1, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        long count = Math.min(Long.highestOneBit(wanted), maxEntries());
+        allocate(count);
+        mask = count - 1;
+        generation = 0;
+        resetStatistics();
+    }
+
+    /**
+     * Empties every entry.
+     */
+    public void clear() {
+        erase();
+        generation = 0;
+        resetStatistics();
+    }
+
+    /**
+     * Returns the largest number of entries the storage can hold.
+     */
+    protected abstract long maxEntries();
+
+    /**
+     * Replaces the storage with room for the given number of empty entries.
+     */
+    protected abstract void allocate(long count);
+
+    /**
+     * Sets every long of the storage to 0.
+     */
+    protected abstract void erase();
+
+    /**
+     * Returns the key XOR data long of an entry.
+     */
+    protected abstract long checkAt(long entry);
+
+    /**
+     * Returns the data long of an entry.
+     */
+    protected abstract long dataAt(long entry);
+
+    /**
+     * Writes both longs of an entry.
+     */
+    protected abstract void write(long entry, long check, long data);
+
+    /**
+     * Starts a new search, which ages every entry stored so far.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 255;
+    }
+
+    /**
+     * Returns the data stored for a key, or 0 if the table holds nothing for it.
+     */
+    public long probe(long key) {
+        long entry = key & mask;
+        long data = dataAt(entry);
+        if ((checkAt(entry) ^ data) != key || bound(data) == NONE) {
+            return 0;
+        }
+        return data;
+    }
+
+    /**
+     * Stores a search result for a key. An entry for another position is only replaced if it
+     * comes from an older search or was searched less deeply, and an entry for the same position
+     * keeps its move if the new result has none.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        long entry = key & mask;
+        long oldData = dataAt(entry);
+        boolean samePosition = (checkAt(entry) ^ oldData) == key;
+        if (!samePosition && bound(oldData) != NONE && generation(oldData) == generation
+                && depth < depth(oldData)) {
+            return;
+        }
+        if (samePosition && move == Search.NO_MOVE) {
+            move = move(oldData);
+        }
+        long data = move
+                | (long) (score & 0xFFFF) << SCORE_SHIFT
+                | (long) depth << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) generation << GENERATION_SHIFT;
+        write(entry, key ^ data, data);
+    }
+
+    /**
+     * Returns the best move stored in entry data.
+     */
+    public static int move(long data) {
+        return (int) (data & 0x3FFFFFF);
+    }
+
+    /**
+     * Returns the score stored in entry data.
+     */
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    /**
+     * Returns the depth stored in entry data.
+     */
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 255;
+    }
+
+    /**
+     * Returns the bound type stored in entry data.
+     */
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 3;
+    }
+
+    /**
+     * Returns the generation stored in entry data.
+     */
+    private static int generation(long data) {
+        return (int) (data >>> GENERATION_SHIFT) & 255;
+    }
+
+    /**
+     * Adds a search's probe and hit counts to the table's statistics. Searches count on their own
+     * and report once, so threads sharing the table do not contend on counters.
+     */
+    public void addStatistics(long searchProbes, long searchHits) {
+        probes.add(searchProbes);
+        hits.add(searchHits);
+    }
+
+    /**
+     * Zeroes the probe and hit counts.
+     */
+    public void resetStatistics() {
+        probes.reset();
+        hits.reset();
+    }
+
+    /**
+     * Returns the fraction of reported probes that found an entry.
+     */
+    public double hitRate() {
+        long total = probes.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    /**
+     * Returns the fraction of entries holding a result of the current search, estimated from the
+     * first entries of the table.
+     */
+    public double occupancy() {
+        int sample = (int) Math.min(OCCUPANCY_SAMPLE, mask + 1);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = dataAt(i);
+            if (bound(data) != NONE && generation(data) == generation) {
+                used++;
+            }
+        }
+        return (double) used / sample;
+    }
+
+    /**
+     * Returns the number of entries.
+     */
+    public long capacity() {
+        return mask + 1;
+    }
+}
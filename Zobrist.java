@@ -0,0 +1,67 @@
+import java.util.SplittableRandom;
+
+/**
+ * The Zobrist class holds the random numbers that make up a position's 64-bit key. A key is the
+ * XOR of one number per piece on its square, one for black to move, one per castling rights
+ * combination and one for the file of a capturable en passant square, so a move only has to XOR
+ * out what it removes and XOR in what it adds.
+ */
+public final class Zobrist {
+
+    /**
+     * Numbers of each piece on each square. Indexed [side * 6 + type][square].
+     */
+    public static final long[][] PIECES = new long[12][64];
+
+    /**
+     * Number XORed in when black is to move.
+     */
+    public static final long BLACK_TO_MOVE;
+
+    /**
+     * Numbers of each combination of the castling rights bits.
+     */
+    public static final long[] CASTLING = new long[16];
+
+    /**
+     * Numbers of each en passant file.
+     */
+    public static final long[] PASSANT_FILES = new long[8];
+
+    static {
+        // A fixed seed keeps keys the same from run to run
+        SplittableRandom random = new SplittableRandom(0x2B992DDFA23249D6L);
+        for (long[] squares : PIECES) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        for (int i = 0; i < 16; i++) {
+            CASTLING[i] = random.nextLong();
+        }
+        for (int i = 0; i < 8; i++) {
+            PASSANT_FILES[i] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the en passant part of a key. A square only counts when a pawn of the side to move
+     * stands next to it and could capture onto it, so a double push nobody can answer en passant
+     * does not make an otherwise identical position look different.
+     */
+    public static long passantKey(long passant, int sideToMove, long sideToMovePawns) {
+        long key = 0;
+        while (passant != 0) {
+            int square = Long.numberOfTrailingZeros(passant);
+            passant &= passant - 1;
+            if ((Bitboards.PAWN_ATTACKS[sideToMove ^ 1][square] & sideToMovePawns) != 0) {
+                key ^= PASSANT_FILES[square % 8];
+            }
+        }
+        return key;
+    }
+}
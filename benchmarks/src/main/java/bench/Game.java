@@ -0,0 +1,173 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * JMH refuses benchmark classes in the default package, and a named package cannot import the
+ * game's default package classes, so the benchmarks reach Position and Board through these method
+ * handles. They are static final, which lets the JIT inline them like direct calls.
+ */
+final class Game {
+
+    private static final Class<?> POSITION = load("Position");
+    private static final Class<?> BOARD = load("Board");
+
+    private static final MethodHandle NEW_POSITION = constructor(POSITION, String.class);
+    private static final MethodHandle NEW_BOARD = constructor(BOARD);
+    private static final MethodHandle SIDE_TO_MOVE = method(POSITION, "getSideToMove", int.class);
+    private static final MethodHandle PIECE_AT = method(POSITION, "pieceAt", int.class, int.class);
+    private static final MethodHandle MAKE_MOVE = method(POSITION, "makeMove", void.class, int.class);
+    private static final MethodHandle UNMAKE_MOVE = method(POSITION, "unmakeMove", void.class, int.class);
+    private static final MethodHandle MAKE_NULL_MOVE = method(POSITION, "makeNullMove", void.class);
+    private static final MethodHandle UNMAKE_NULL_MOVE = method(POSITION, "unmakeNullMove", void.class);
+    private static final MethodHandle GENERATE_LEGAL_MOVES =
+            staticMethod(load("MoveGenerator"), "generateLegalMoves", int.class, POSITION, int[].class);
+    private static final MethodHandle IS_QUIET = staticMethod(load("Move"), "isQuiet", boolean.class, int.class);
+    private static final MethodHandle LEGAL_MOVES =
+            method(BOARD, "legalMoves", int.class, int.class, POSITION, int[].class);
+    private static final MethodHandle DETECT_CHECKS = method(BOARD, "detectChecks", int.class, int.class, POSITION);
+    private static final MethodHandle DETECT_CHECKMATE =
+            method(BOARD, "detectCheckmate", boolean.class, int.class, POSITION);
+    private static final MethodHandle DETECT_STALEMATE =
+            method(BOARD, "detectStalemate", boolean.class, int.class, POSITION);
+
+    private Game() {
+    }
+
+    static Object newPosition(String fen) throws Throwable {
+        return (Object) NEW_POSITION.invokeExact(fen);
+    }
+
+    static Object newBoard() throws Throwable {
+        return (Object) NEW_BOARD.invokeExact();
+    }
+
+    /**
+     * Returns the side to move: 0 for white, 1 for black.
+     */
+    static int sideToMove(Object position) throws Throwable {
+        return (int) SIDE_TO_MOVE.invokeExact(position);
+    }
+
+    /**
+     * Returns the piece code (side * 6 + type) on a square, or -1 if it is empty.
+     */
+    static int pieceAt(Object position, int square) throws Throwable {
+        return (int) PIECE_AT.invokeExact(position, square);
+    }
+
+    /**
+     * Returns a quiet legal move the side not to move could play after a null move, for touch to
+     * play to change the board and back. Throws if there is none, as a position without one
+     * cannot be touched; called from the benchmark setups, this stops the run before any
+     * measurement.
+     */
+    static int quietReply(Object position) throws Throwable {
+        int[] moves = new int[256];
+        MAKE_NULL_MOVE.invokeExact(position);
+        int count = (int) GENERATE_LEGAL_MOVES.invokeExact(position, moves);
+        UNMAKE_NULL_MOVE.invokeExact(position);
+        for (int i = 0; i < count; i++) {
+            if ((boolean) IS_QUIET.invokeExact(moves[i])) {
+                return moves[i];
+            }
+        }
+        throw new IllegalArgumentException("The side not to move has no quiet move to touch the position with");
+    }
+
+    /**
+     * Plays a null move and the given quiet reply, then takes both back. The position ends up as
+     * it was, but whatever it worked out and kept for the board before, such as the checkers and
+     * pinned pieces, is gone, as it would be after a move in a game. This works in mated
+     * positions too, which have no move of their own to play.
+     */
+    static void touch(Object position, int reply) throws Throwable {
+        MAKE_NULL_MOVE.invokeExact(position);
+        MAKE_MOVE.invokeExact(position, reply);
+        UNMAKE_MOVE.invokeExact(position, reply);
+        UNMAKE_NULL_MOVE.invokeExact(position);
+    }
+
+    static int legalMoves(Object board, int square, Object position, int[] moves) throws Throwable {
+        return (int) LEGAL_MOVES.invokeExact(board, square, position, moves);
+    }
+
+    static int detectChecks(Object board, int side, Object position) throws Throwable {
+        return (int) DETECT_CHECKS.invokeExact(board, side, position);
+    }
+
+    static boolean detectCheckmate(Object board, int side, Object position) throws Throwable {
+        return (boolean) DETECT_CHECKMATE.invokeExact(board, side, position);
+    }
+
+    static boolean detectStalemate(Object board, int side, Object position) throws Throwable {
+        return (boolean) DETECT_STALEMATE.invokeExact(board, side, position);
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Looks up a public constructor.
+     */
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameters) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup()
+                    .findConstructor(owner, MethodType.methodType(void.class, parameters));
+            return eraseGameTypes(handle);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Looks up a public instance method.
+     */
+    private static MethodHandle method(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup()
+                    .findVirtual(owner, name, MethodType.methodType(returnType, parameters));
+            return eraseGameTypes(handle);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Looks up a public static method.
+     */
+    private static MethodHandle staticMethod(Class<?> owner, String name, Class<?> returnType,
+            Class<?>... parameters) {
+        try {
+            MethodHandle handle = MethodHandles.publicLookup()
+                    .findStatic(owner, name, MethodType.methodType(returnType, parameters));
+            return eraseGameTypes(handle);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Replaces Position and Board in a handle's type with Object so it can be invoked exactly from
+     * this package.
+     */
+    private static MethodHandle eraseGameTypes(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (type.parameterType(i) == POSITION || type.parameterType(i) == BOARD) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (type.returnType() == POSITION || type.returnType() == BOARD) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+}
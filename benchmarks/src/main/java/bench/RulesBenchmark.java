@@ -0,0 +1,170 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of the Board rules that the GUI runs on every click and every move, measured over a
+ * fixed corpus of middlegame and endgame positions.
+ *
+ * The rule benchmarks change the position and change it back before each call, so nothing the
+ * position cached for the previous call is reused. The touch benchmarks time that alone; subtract
+ * their time per op to get the cost of the rule itself.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+
+    /**
+     * Middlegame and endgame positions the side to move is not in check in.
+     */
+    @State(Scope.Thread)
+    public static class Corpus {
+        @Param({
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP3PPP/R2QKB1R b KQ - 0 8",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "8/5pk1/6p1/3R4/8/6P1/r4PK1/8 b - - 0 40",
+                "8/8/3k4/8/2P5/4K3/8/8 w - - 0 60"})
+        public String fen;
+
+        Object board;
+        Object position;
+        int side;
+        /** Squares of the side to move's pieces. */
+        int[] squares;
+        /** Move buffer the legal moves are generated into, as large as the GUI's. */
+        final int[] moves = new int[256];
+        /** Quiet reply to a null move, played and taken back to make each call start afresh. */
+        int reply;
+
+        @Setup
+        public void setup() throws Throwable {
+            board = Game.newBoard();
+            position = Game.newPosition(fen);
+            side = Game.sideToMove(position);
+            int count = 0;
+            squares = new int[16];
+            for (int square = 0; square < 64; square++) {
+                int piece = Game.pieceAt(position, square);
+                if (piece >= 0 && piece / 6 == side) {
+                    squares[count++] = square;
+                }
+            }
+            squares = Arrays.copyOf(squares, count);
+            reply = Game.quietReply(position);
+        }
+    }
+
+    /**
+     * Positions where the side to move is in check, some of them mated. detectCheckmate is only
+     * ever called on a king in check.
+     */
+    @State(Scope.Thread)
+    public static class Checks {
+        @Param({
+                "r1bqkb1r/pppp1Qpp/2n2n2/4p3/2B1P3/8/PPPP1PPP/RNB1K1NR b KQkq - 0 4",
+                "rnbqkbnr/ppp2ppp/3p4/1B2p3/4P3/8/PPPP1PPP/RNBQK1NR b KQkq - 1 3",
+                "R5k1/5ppp/8/8/8/8/5PPP/6K1 b - - 0 1",
+                "8/8/4k3/8/8/8/8/K3R3 b - - 0 1"})
+        public String fen;
+
+        Object board;
+        Object position;
+        int side;
+        /** Quiet reply to a null move, played and taken back to make each call start afresh. */
+        int reply;
+
+        @Setup
+        public void setup() throws Throwable {
+            board = Game.newBoard();
+            position = Game.newPosition(fen);
+            side = Game.sideToMove(position);
+            reply = Game.quietReply(position);
+        }
+    }
+
+    /**
+     * Baseline for legalMoves, detectChecks and detectStalemate: plays and takes back the null
+     * move and reply that each of them starts with, and nothing else.
+     */
+    @Benchmark
+    public void touch(Corpus corpus) throws Throwable {
+        Game.touch(corpus.position, corpus.reply);
+    }
+
+    /**
+     * Baseline for detectCheckmate, as touch is for the corpus benchmarks.
+     */
+    @Benchmark
+    public void touchChecks(Checks checks) throws Throwable {
+        Game.touch(checks.position, checks.reply);
+    }
+
+    /**
+     * Parses a FEN into a fresh Position.
+     */
+    @Benchmark
+    public Object fenSetup(Corpus corpus) throws Throwable {
+        return Game.newPosition(corpus.fen);
+    }
+
+    /**
+     * Generates the legal moves of every piece of the side to move, as the GUI does when pieces
+     * are clicked. Each call starts from a position that has just changed, as after a move.
+     */
+    @Benchmark
+    public void legalMoves(Corpus corpus, Blackhole blackhole) throws Throwable {
+        Game.touch(corpus.position, corpus.reply);
+        for (int i = 0; i < corpus.squares.length; i++) {
+            blackhole.consume(Game.legalMoves(corpus.board, corpus.squares[i], corpus.position, corpus.moves));
+        }
+    }
+
+    /**
+     * Counts checks on the side to move. The position is changed and changed back first, so the
+     * checkers are worked out again rather than read back from the previous call.
+     */
+    @Benchmark
+    public int detectChecks(Corpus corpus) throws Throwable {
+        Game.touch(corpus.position, corpus.reply);
+        return Game.detectChecks(corpus.board, corpus.side, corpus.position);
+    }
+
+    /**
+     * Checks the side to move for stalemate, which generates all of its legal moves
+     * from a freshly changed position.
+     */
+    @Benchmark
+    public boolean detectStalemate(Corpus corpus) throws Throwable {
+        Game.touch(corpus.position, corpus.reply);
+        return Game.detectStalemate(corpus.board, corpus.side, corpus.position);
+    }
+
+    /**
+     * Checks the side to move, which is in check, for checkmate, from a freshly
+     * changed position.
+     */
+    @Benchmark
+    public boolean detectCheckmate(Checks checks) throws Throwable {
+        Game.touch(checks.position, checks.reply);
+        return Game.detectCheckmate(checks.board, checks.side, checks.position);
+    }
+}